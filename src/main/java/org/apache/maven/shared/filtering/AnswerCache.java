@@ -0,0 +1,106 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.Interpolator;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+
+/**
+ * Values of the expressions found in the filtered resources, shared by all the readers and templates of a filter
+ * wrapper so that an expression is resolved once per execution and not once per file.
+ * <p>
+ * Values are resolved outside of the lock: two threads asking for the same expression may both resolve it, with the
+ * same result. Failed resolutions are not cached.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class AnswerCache
+{
+    private final Map answers = new HashMap();
+
+    /** values of the filter properties, resolved up front */
+    private final ResolvedProperties resolvedProperties;
+
+    AnswerCache()
+    {
+        this( ResolvedProperties.EMPTY );
+    }
+
+    /**
+     * @param resolvedProperties values looked up before the cached and resolved ones
+     */
+    AnswerCache( ResolvedProperties resolvedProperties )
+    {
+        this.resolvedProperties = resolvedProperties;
+    }
+
+    /**
+     * @param interpolator the interpolator used when the expression is not cached
+     * @param expression the expression including its delimiters
+     * @param recursionInterceptor the recursion interceptor
+     * @return the value of the expression
+     * @throws InterpolationException
+     */
+    String interpolate( Interpolator interpolator, String expression, RecursionInterceptor recursionInterceptor )
+        throws InterpolationException
+    {
+        String value = resolvedProperties.get( expression );
+        if ( value != null )
+        {
+            return value;
+        }
+        synchronized ( this )
+        {
+            value = (String) answers.get( expression );
+        }
+        if ( value == null )
+        {
+            value = interpolator.interpolate( expression, recursionInterceptor );
+            if ( value != null )
+            {
+                synchronized ( this )
+                {
+                    answers.put( expression, value );
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Forget all the values, to be called when the objects backing the interpolator change. The resolved properties
+     * are kept as they are a copy.
+     */
+    synchronized void clear()
+    {
+        answers.clear();
+    }
+
+    synchronized int size()
+    {
+        return answers.size();
+    }
+}
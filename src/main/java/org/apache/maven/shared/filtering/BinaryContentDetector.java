@@ -0,0 +1,229 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Tells binary files from text files by looking at their first bytes: a known magic number, a NUL byte, or a
+ * sequence which is not valid in the encoding of the resources.
+ * <p>
+ * The decisions are shared by the builds running in the same JVM, and taken again when the size or modification
+ * time of a file changed.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class BinaryContentDetector
+{
+    /** number of bytes looked at */
+    private static final int SNIFF_LENGTH = 4096;
+
+    private static final LruCache DECISIONS = new LruCache( 10000 );
+
+    /** first bytes of binary formats: archives, class files, documents, fonts, images and executables */
+    private static final int[][] MAGIC_NUMBERS = {
+        { 'P', 'K', 3, 4 }, // zip, jar
+        { 'P', 'K', 5, 6 }, // empty zip
+        { 0xCA, 0xFE, 0xBA, 0xBE }, // class
+        { 0x1F, 0x8B }, // gzip
+        { 0xFD, '7', 'z', 'X', 'Z', 0 }, // xz
+        { '7', 'z', 0xBC, 0xAF, 0x27, 0x1C }, // 7z
+        { '%', 'P', 'D', 'F', '-' }, // pdf
+        { 0x89, 'P', 'N', 'G' }, // png
+        { 'G', 'I', 'F', '8' }, // gif
+        { 0xFF, 0xD8, 0xFF }, // jpeg
+        { 'w', 'O', 'F', 'F' }, // woff
+        { 'w', 'O', 'F', '2' }, // woff2
+        { 0, 1, 0, 0, 0 }, // ttf
+        { 'O', 'T', 'T', 'O' }, // otf
+        { 0x7F, 'E', 'L', 'F' }, // elf
+    };
+
+    private BinaryContentDetector()
+    {
+        // nothing just an util class
+    }
+
+    /**
+     * @param file the file to look at
+     * @param encoding the encoding of the text files, <code>null</code> or empty for the platform encoding
+     * @return <code>true</code> if the file is not text in this encoding
+     * @throws IOException if the file can't be read
+     */
+    static boolean isBinary( File file, String encoding )
+        throws IOException
+    {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String key = file.getAbsolutePath() + '|' + encoding;
+
+        Decision decision = (Decision) DECISIONS.get( key );
+        if ( decision != null && decision.length == length && decision.lastModified == lastModified )
+        {
+            return decision.binary;
+        }
+
+        boolean binary = isBinary( readStart( file ), getCharset( encoding ) );
+
+        // a file changed again within the timestamp resolution could keep the same length and modification time
+        if ( System.currentTimeMillis() - lastModified > DefaultMavenFileFilter.TIMESTAMP_RESOLUTION )
+        {
+            DECISIONS.put( key, new Decision( length, lastModified, binary ) );
+        }
+        else
+        {
+            DECISIONS.remove( key );
+        }
+        return binary;
+    }
+
+    /**
+     * @param bytes the first bytes of a file
+     * @param charset the encoding of the text files, <code>null</code> if not supported
+     */
+    static boolean isBinary( byte[] bytes, Charset charset )
+    {
+        for ( int i = 0; i < MAGIC_NUMBERS.length; i++ )
+        {
+            if ( startsWith( bytes, MAGIC_NUMBERS[i] ) )
+            {
+                return true;
+            }
+        }
+        if ( charset == null )
+        {
+            return false;
+        }
+
+        // NUL is a regular byte of the encodings using more than one byte per ascii character
+        boolean wide = charset.name().startsWith( "UTF-16" ) || charset.name().startsWith( "UTF-32" );
+        for ( int i = 0; i < bytes.length && !wide; i++ )
+        {
+            if ( bytes[i] == 0 )
+            {
+                return true;
+            }
+        }
+        return !isValid( bytes, charset );
+    }
+
+    private static boolean startsWith( byte[] bytes, int[] prefix )
+    {
+        if ( bytes.length < prefix.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < prefix.length; i++ )
+        {
+            if ( ( bytes[i] & 0xFF ) != prefix[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>false</code> if the bytes contain a malformed or unmappable sequence, a character cut at the end
+     *         being valid
+     */
+    private static boolean isValid( byte[] bytes, Charset charset )
+    {
+        CharsetDecoder decoder = charset.newDecoder();
+        decoder.onMalformedInput( CodingErrorAction.REPORT );
+        decoder.onUnmappableCharacter( CodingErrorAction.REPORT );
+        ByteBuffer in = ByteBuffer.wrap( bytes );
+        CharBuffer out = CharBuffer.allocate( bytes.length );
+        CoderResult result = decoder.decode( in, out, false );
+        return !result.isError();
+    }
+
+    private static byte[] readStart( File file )
+        throws IOException
+    {
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[SNIFF_LENGTH];
+            int length = 0;
+            int n;
+            while ( length < buffer.length && ( n = in.read( buffer, length, buffer.length - length ) ) != -1 )
+            {
+                length += n;
+            }
+            if ( length == buffer.length )
+            {
+                return buffer;
+            }
+            byte[] start = new byte[length];
+            System.arraycopy( buffer, 0, start, 0, length );
+            return start;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * @return the charset, <code>null</code> if it is not supported
+     */
+    private static Charset getCharset( String encoding )
+    {
+        try
+        {
+            return Charset.forName( StringUtils.isEmpty( encoding ) ? ReaderFactory.FILE_ENCODING : encoding );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
+    private static final class Decision
+    {
+        final long length;
+
+        final long lastModified;
+
+        final boolean binary;
+
+        Decision( long length, long lastModified, boolean binary )
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.binary = binary;
+        }
+    }
+}
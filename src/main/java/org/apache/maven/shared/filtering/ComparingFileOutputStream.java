@@ -0,0 +1,130 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Writes to an existing file only from the first byte which differs from its current content, so that a file
+ * whose content doesn't change is not written at all and keeps its modification time.
+ *
+ * @since 1.2
+ */
+final class ComparingFileOutputStream
+    extends OutputStream
+{
+    private final RandomAccessFile file;
+
+    private byte[] buffer = new byte[8192];
+
+    /** number of bytes written, all equal to the content of the file while {@link #changed} is false */
+    private long position;
+
+    private boolean changed;
+
+    private boolean closed;
+
+    /**
+     * @param file an existing file
+     * @throws IOException if the file can't be opened for writing
+     */
+    ComparingFileOutputStream( File file )
+        throws IOException
+    {
+        this.file = new RandomAccessFile( file, "rw" );
+    }
+
+    public void write( int b )
+        throws IOException
+    {
+        write( new byte[] { (byte) b }, 0, 1 );
+    }
+
+    public void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        if ( !changed )
+        {
+            if ( buffer.length < len )
+            {
+                buffer = new byte[len];
+            }
+            int read = 0;
+            while ( read < len )
+            {
+                int n = file.read( buffer, read, len - read );
+                if ( n < 0 )
+                {
+                    break;
+                }
+                read += n;
+            }
+            for ( int i = 0; i < len && !changed; i++ )
+            {
+                changed = i >= read || buffer[i] != b[off + i];
+            }
+            if ( !changed )
+            {
+                position += len;
+                return;
+            }
+            file.seek( position );
+        }
+        file.write( b, off, len );
+        position += len;
+    }
+
+    /**
+     * Truncate the file if the new content is shorter than the previous one.
+     */
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            if ( file.length() != position )
+            {
+                changed = true;
+                file.setLength( position );
+            }
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the file has been written, only accurate once closed
+     */
+    boolean isChanged()
+    {
+        return changed;
+    }
+}
@@ -0,0 +1,259 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import org.codehaus.plexus.interpolation.ValueSource;
+import org.codehaus.plexus.interpolation.reflection.ReflectionValueExtractor;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Same as {@link org.codehaus.plexus.interpolation.ObjectBasedValueSource} but each expression is compiled the first
+ * time it is seen into a chain of getters, which is then invoked directly rather than tokenized and looked up again.
+ * <p>
+ * Each step of a chain remembers the getter found for the last class it was invoked on. Expressions using indexed or
+ * mapped properties, and chains which can't be resolved this way, are evaluated by {@link ReflectionValueExtractor}.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class CompiledObjectValueSource
+    implements ValueSource
+{
+    /** compiled expressions, shared by all the roots */
+    private static final LruCache ACCESSORS = new LruCache( 1000 );
+
+    private static final Class[] NO_PARAMETERS = new Class[0];
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final Object root;
+
+    private final List feedback = new ArrayList();
+
+    /**
+     * @param root the object the expressions are evaluated against
+     */
+    CompiledObjectValueSource( Object root )
+    {
+        this.root = root;
+    }
+
+    public Object getValue( String expression )
+    {
+        // as ObjectBasedValueSource, an empty expression such as @@ is left unresolved rather than the root
+        if ( root == null || expression == null || expression.trim().length() < 1 )
+        {
+            return null;
+        }
+
+        try
+        {
+            Accessor accessor = getAccessor( expression );
+            if ( accessor != null )
+            {
+                Object value = accessor.getValue( root );
+                if ( value != Accessor.UNRESOLVED )
+                {
+                    return value;
+                }
+            }
+            return ReflectionValueExtractor.evaluate( expression, root, false );
+        }
+        catch ( Exception e )
+        {
+            addFeedback( "Failed to extract '" + expression + "' from: " + root, e );
+        }
+
+        return null;
+    }
+
+    public synchronized List getFeedback()
+    {
+        return new ArrayList( feedback );
+    }
+
+    public synchronized void clearFeedback()
+    {
+        feedback.clear();
+    }
+
+    private synchronized void addFeedback( String message, Throwable cause )
+    {
+        feedback.add( message );
+        feedback.add( cause );
+    }
+
+    /**
+     * @return the compiled expression, <code>null</code> if it has to be evaluated by
+     *         {@link ReflectionValueExtractor}
+     */
+    private static Accessor getAccessor( String expression )
+    {
+        Object accessor = ACCESSORS.get( expression );
+        if ( accessor == null )
+        {
+            accessor = Accessor.compile( expression );
+            ACCESSORS.put( expression, accessor );
+        }
+        return accessor == Accessor.NOT_COMPILED ? null : (Accessor) accessor;
+    }
+
+    /**
+     * A chain of getters.
+     */
+    private static final class Accessor
+    {
+        /** cached for the expressions which can't be compiled */
+        static final Object NOT_COMPILED = new Object();
+
+        /** returned when the chain can't be invoked on a root */
+        static final Object UNRESOLVED = new Object();
+
+        private final Step[] steps;
+
+        private Accessor( Step[] steps )
+        {
+            this.steps = steps;
+        }
+
+        /**
+         * @return an {@link Accessor} or {@link #NOT_COMPILED}
+         */
+        static Object compile( String expression )
+        {
+            if ( expression.length() == 0 || expression.indexOf( '[' ) >= 0 || expression.indexOf( '(' ) >= 0
+                || expression.startsWith( "." ) || expression.endsWith( "." ) || expression.indexOf( ".." ) >= 0 )
+            {
+                return NOT_COMPILED;
+            }
+
+            List steps = new ArrayList();
+            for ( StringTokenizer tokens = new StringTokenizer( expression, "." ); tokens.hasMoreTokens(); )
+            {
+                steps.add( new Step( StringUtils.capitalizeFirstLetter( tokens.nextToken() ) ) );
+            }
+            return new Accessor( (Step[]) steps.toArray( new Step[steps.size()] ) );
+        }
+
+        /**
+         * @return the value, <code>null</code> as {@link ReflectionValueExtractor} when a property is missing or
+         *         <code>null</code>, or {@link #UNRESOLVED} if a getter could not be invoked
+         */
+        Object getValue( Object root )
+            throws Exception
+        {
+            Object value = root;
+            for ( int i = 0; i < steps.length && value != null && value != UNRESOLVED; i++ )
+            {
+                value = steps[i].invoke( value );
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A getter, with the method found for the last class it was invoked on.
+     */
+    private static final class Step
+    {
+        private final String property;
+
+        /** last class and method, replaced as a whole so that it can be read without locking */
+        private volatile Resolution resolution;
+
+        Step( String property )
+        {
+            this.property = property;
+        }
+
+        /**
+         * @return the value returned by the getter, <code>null</code> if there is none, or
+         *         {@link Accessor#UNRESOLVED} if it can't be invoked
+         */
+        Object invoke( Object target )
+            throws Exception
+        {
+            Class type = target.getClass();
+            Resolution current = resolution;
+            if ( current == null || current.type != type )
+            {
+                current = new Resolution( type, findGetter( type ) );
+                resolution = current;
+            }
+            if ( current.method == null )
+            {
+                // as ReflectionValueExtractor
+                return null;
+            }
+            if ( !current.accessible )
+            {
+                return Accessor.UNRESOLVED;
+            }
+            return current.method.invoke( target, NO_ARGUMENTS );
+        }
+
+        private Method findGetter( Class type )
+        {
+            try
+            {
+                return type.getMethod( "get" + property, NO_PARAMETERS );
+            }
+            catch ( NoSuchMethodException e )
+            {
+                try
+                {
+                    return type.getMethod( "is" + property, NO_PARAMETERS );
+                }
+                catch ( NoSuchMethodException e1 )
+                {
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * The getter of a property for a class.
+     */
+    private static final class Resolution
+    {
+        final Class type;
+
+        final Method method;
+
+        /** false when the getter is declared by a class which is not public */
+        final boolean accessible;
+
+        Resolution( Class type, Method method )
+        {
+            this.type = type;
+            this.method = method;
+            this.accessible = method != null
+                && Modifier.isPublic( method.getDeclaringClass().getModifiers() );
+        }
+    }
+}
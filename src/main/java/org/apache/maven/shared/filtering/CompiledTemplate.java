@@ -0,0 +1,229 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.Interpolator;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
+
+/**
+ * A resource parsed once into literal text and the expressions found between the literals, so that it can be
+ * filtered again with other values without tokenizing it again.
+ * <p>
+ * The template is produced by {@link MultiDelimiterInterpolatorFilterReaderLineEnding} itself, so it follows the
+ * exact same grammar: delimiters, escape string and multi line support. Escaped tokens are part of the literal text.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class CompiledTemplate
+{
+    /** returned for each expression while compiling, to find where expressions are in the filtered text */
+    private static final char EXPRESSION_MARKER = '\uFFFF';
+
+    private static final String EXPRESSION_MARKER_STRING = String.valueOf( EXPRESSION_MARKER );
+
+    private final char[] text;
+
+    /** position in text of each expression */
+    private final int[] offsets;
+
+    /** expressions including their delimiters, as given to the interpolator by the reader */
+    private final String[] expressions;
+
+    private long sourceLength = -1;
+
+    private long sourceLastModified = -1;
+
+    private CompiledTemplate( char[] text, int[] offsets, String[] expressions )
+    {
+        this.text = text;
+        this.offsets = offsets;
+        this.expressions = expressions;
+    }
+
+    /**
+     * @param reader the resource to parse, not closed
+     * @param delimiterMatcher the delimiters and escape string
+     * @param supportMultiLineFiltering if tokens can span lines
+     * @return the template, or <code>null</code> if the resource can't be compiled as it contains the character
+     *         used to mark the expressions
+     * @throws IOException
+     */
+    static CompiledTemplate compile( Reader reader, DelimiterMatcher delimiterMatcher,
+                                     boolean supportMultiLineFiltering )
+        throws IOException
+    {
+        Compiler compiler = new Compiler( reader, supportMultiLineFiltering );
+        compiler.setDelimiterMatcher( delimiterMatcher );
+        compiler.setInterpolateWithPrefixPattern( false );
+
+        StringBuffer filtered = new StringBuffer();
+        char[] buffer = new char[4096];
+        int n;
+        while ( ( n = compiler.read( buffer, 0, buffer.length ) ) != -1 )
+        {
+            filtered.append( buffer, 0, n );
+        }
+
+        int expressionCount = compiler.expressions.size();
+        int markerCount = 0;
+        for ( int i = 0; i < filtered.length(); i++ )
+        {
+            if ( filtered.charAt( i ) == EXPRESSION_MARKER )
+            {
+                markerCount++;
+            }
+        }
+        if ( markerCount != expressionCount )
+        {
+            // the resource contains the marker itself: which markers are expressions can't be told
+            return null;
+        }
+
+        char[] text = new char[filtered.length() - expressionCount];
+        int[] offsets = new int[expressionCount];
+        int length = 0;
+        int found = 0;
+        for ( int i = 0; i < filtered.length(); i++ )
+        {
+            char ch = filtered.charAt( i );
+            if ( ch == EXPRESSION_MARKER )
+            {
+                offsets[found++] = length;
+            }
+            else
+            {
+                text[length++] = ch;
+            }
+        }
+
+        return new CompiledTemplate( text, offsets,
+                                     (String[]) compiler.expressions.toArray( new String[expressionCount] ) );
+    }
+
+    /**
+     * Writes the filtered resource, asking the interpolator for the value of each expression as
+     * {@link MultiDelimiterInterpolatorFilterReaderLineEnding} does.
+     *
+     * @param writer destination, not closed
+     * @param interpolator the interpolator
+     * @param recursionInterceptor the recursion interceptor
+     * @param answerCache values shared with other resources, can be <code>null</code>
+     * @throws IOException
+     */
+    void render( Writer writer, Interpolator interpolator, RecursionInterceptor recursionInterceptor,
+                 AnswerCache answerCache )
+        throws IOException
+    {
+        int position = 0;
+        for ( int i = 0; i < expressions.length; i++ )
+        {
+            writer.write( text, position, offsets[i] - position );
+            position = offsets[i];
+
+            String value;
+            try
+            {
+                value = answerCache == null ? interpolator.interpolate( expressions[i], recursionInterceptor )
+                                : answerCache.interpolate( interpolator, expressions[i], recursionInterceptor );
+            }
+            catch ( InterpolationException e )
+            {
+                IllegalArgumentException error = new IllegalArgumentException( e.getMessage() );
+                error.initCause( e );
+
+                throw error;
+            }
+            writer.write( value == null ? expressions[i] : value );
+        }
+        writer.write( text, position, text.length - position );
+    }
+
+    /**
+     * @return the expressions in the template, including their delimiters, in the order they appear
+     */
+    String[] getExpressions()
+    {
+        return (String[]) expressions.clone();
+    }
+
+    /**
+     * @return number of expressions in the template
+     */
+    int getExpressionCount()
+    {
+        return expressions.length;
+    }
+
+    /**
+     * @return number of characters held by the template
+     */
+    long getSize()
+    {
+        long size = text.length;
+        for ( int i = 0; i < expressions.length; i++ )
+        {
+            size += expressions[i].length();
+        }
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if the template was compiled from a source with this length and modification time
+     */
+    boolean isCompiledFrom( long length, long lastModified )
+    {
+        return sourceLength == length && sourceLastModified == lastModified;
+    }
+
+    void setSource( long length, long lastModified )
+    {
+        this.sourceLength = length;
+        this.sourceLastModified = lastModified;
+    }
+
+    /**
+     * The filter reader, recording the expressions instead of interpolating them.
+     */
+    private static final class Compiler
+        extends MultiDelimiterInterpolatorFilterReaderLineEnding
+    {
+        private final List expressions = new ArrayList();
+
+        Compiler( Reader in, boolean supportMultiLineFiltering )
+        {
+            super( in, new MultiDelimiterStringSearchInterpolator(), supportMultiLineFiltering );
+        }
+
+        String interpolate( String key )
+        {
+            expressions.add( key );
+            return EXPRESSION_MARKER_STRING;
+        }
+    }
+}
@@ -19,12 +19,25 @@ package org.apache.maven.shared.filtering;
  * under the License.
  */
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -34,9 +47,10 @@ import java.util.Properties;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.InterpolationPostProcessor;
 import org.codehaus.plexus.interpolation.PrefixAwareRecursionInterceptor;
-import org.codehaus.plexus.interpolation.PrefixedObjectValueSource;
+import org.codehaus.plexus.interpolation.PrefixedValueSourceWrapper;
 import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
 import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
@@ -46,6 +60,7 @@ import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpo
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.FileUtils.FilterWrapper;
 import org.codehaus.plexus.util.StringUtils;
 import org.sonatype.plexus.build.incremental.BuildContext;
@@ -62,9 +77,30 @@ public class DefaultMavenFileFilter
     implements MavenFileFilter
 {
 
+    /** maximum number of characters held by the cached templates, 8MB of char[] */
+    private static final long MAX_TEMPLATES_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * compiled templates of the filtered files, shared by the builds running in the same JVM: a template is checked
+     * against the length and modification time of its file before being used
+     */
+    private static final LruCache TEMPLATES = new LruCache( 1000, MAX_TEMPLATES_SIZE );
+
+    /** bigger files are filtered without being cached */
+    private static final long MAX_TEMPLATE_LENGTH = 64 * 1024;
+
+    /** files modified more recently than this are not cached, in milliseconds */
+    static final long TIMESTAMP_RESOLUTION = 2000;
+
+    /** maximum number of parallel copies done or running whose outcome has not been reported yet */
+    static final int MAX_UNREPORTED_COPIES = 1024;
+
     /** @plexus.requirement */
     private BuildContext buildContext;
 
+    /** {@link List} receiving the debug messages of the copies done by the current thread, if not logged */
+    private final ThreadLocal deferredMessages = new ThreadLocal();
+
     public void copyFile( File from, File to, boolean filtering, MavenProject mavenProject, List filters,
                           boolean escapedBackslashesInFilePath, String encoding, MavenSession mavenSession )
         throws MavenFilteringException
@@ -106,35 +142,642 @@ public class DefaultMavenFileFilter
                           boolean overwrite )
         throws MavenFilteringException
     {
+        copyFile( from, to, filtering, filterWrappers, encoding, overwrite, null );
+    }
+
+    /**
+     * Will copy a file using the filter wrappers, encoding and options of a resources execution.
+     *
+     * @param from file to copy/filter
+     * @param to destination file
+     * @param filtering enable or not filtering
+     * @param mavenResourcesExecution provides the filter wrappers, encoding and options, and collects the
+     *            {@link FilteringStatistics}
+     * @throws MavenFilteringException
+     * @since 1.2
+     */
+    public void copyFile( File from, File to, boolean filtering, MavenResourcesExecution mavenResourcesExecution )
+        throws MavenFilteringException
+    {
+        copyFile( from, to, filtering, mavenResourcesExecution.getFilterWrappers(),
+                  mavenResourcesExecution.getEncoding(), mavenResourcesExecution.isOverwrite(),
+                  mavenResourcesExecution );
+    }
+
+    private void copyFile( File from, File to, boolean filtering, List filterWrappers, String encoding,
+                           boolean overwrite, MavenResourcesExecution mavenResourcesExecution )
+        throws MavenFilteringException
+    {
+        if ( copyFileContent( from, to, filtering, filterWrappers, encoding, overwrite, mavenResourcesExecution ) )
+        {
+            buildContext.refresh( to );
+        }
+    }
+
+    /**
+     * Start the worker threads of an execution, to be given copies with
+     * {@link #submitCopy(ParallelCopier, ParallelCopier.Copy)} while the files are being scanned, then
+     * {@link #finishCopies(ParallelCopier)}. {@link ParallelCopier#stop()} has to be called in any case.
+     *
+     * @since 1.2
+     */
+    ParallelCopier startCopies( MavenResourcesExecution mavenResourcesExecution )
+    {
+        ParallelCopier copier = new ParallelCopier( this, mavenResourcesExecution );
+        copier.start();
+        return copier;
+    }
+
+    /**
+     * Submit a copy, first reporting the oldest ones while {@link #MAX_UNREPORTED_COPIES} copies are waiting to be
+     * reported, which bounds the memory used whatever the number of files.
+     *
+     * @since 1.2
+     */
+    void submitCopy( ParallelCopier copier, ParallelCopier.Copy copy )
+        throws MavenFilteringException
+    {
+        while ( copier.getUnreportedCount() >= MAX_UNREPORTED_COPIES )
+        {
+            report( copier.next() );
+        }
+        copier.submit( copy );
+    }
+
+    /**
+     * Wait for all the submitted copies and report them.
+     *
+     * @since 1.2
+     */
+    void finishCopies( ParallelCopier copier )
+        throws MavenFilteringException
+    {
+        copier.close();
+        for ( ParallelCopier.Copy copy = copier.next(); copy != null; copy = copier.next() )
+        {
+            report( copy );
+        }
+    }
+
+    /**
+     * Log the messages of a copy, throw its error or refresh its destination in the build context.
+     */
+    private void report( ParallelCopier.Copy copy )
+        throws MavenFilteringException
+    {
+        for ( Iterator it = copy.getMessages().iterator(); it.hasNext(); )
+        {
+            getLogger().debug( (String) it.next() );
+        }
+        copy.rethrow();
+
+        if ( copy.isWritten() )
+        {
+            buildContext.refresh( copy.getTo() );
+        }
+    }
+
+    /**
+     * Same as {@link #copyFile(File, File, boolean, MavenResourcesExecution)} without refreshing the build context,
+     * the debug messages are added to a list instead of being logged.
+     *
+     * @return <code>false</code> if the destination was left as is as its content would not change
+     */
+    boolean copyFileContent( File from, File to, boolean filtering, MavenResourcesExecution mavenResourcesExecution,
+                             List messages )
+        throws MavenFilteringException
+    {
+        deferredMessages.set( messages );
+        try
+        {
+            return copyFileContent( from, to, filtering, mavenResourcesExecution.getFilterWrappers(),
+                             mavenResourcesExecution.getEncoding(), mavenResourcesExecution.isOverwrite(),
+                             mavenResourcesExecution );
+        }
+        finally
+        {
+            deferredMessages.set( null );
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the destination was left as is as its content would not change
+     */
+    private boolean copyFileContent( File from, File to, boolean filtering, List filterWrappers, String encoding,
+                                     boolean overwrite, MavenResourcesExecution mavenResourcesExecution )
+        throws MavenFilteringException
+    {
+        boolean skipUnchangedWrites =
+            mavenResourcesExecution != null && mavenResourcesExecution.isSkipUnchangedWrites();
+        ExecutionState state = mavenResourcesExecution == null ? null : mavenResourcesExecution.getExecutionState();
+        List usedExpressions = state == null ? null : new ArrayList();
+        FileLinker linker = mavenResourcesExecution == null ? null : mavenResourcesExecution.getFileLinker();
+        boolean linking = linker != null && linker.isLinking();
+        File output = to;
+        boolean written = true;
+        boolean upToDate = false;
         try
         {
             if ( filtering )
             {
                 if ( getLogger().isDebugEnabled() )
                 {
-                    getLogger().debug( "filtering " + from.getPath() + " to " + to.getPath() );
+                    debug( "filtering " + from.getPath() + " to " + to.getPath() );
                 }
                 FileUtils.FilterWrapper[] wrappers = (FileUtils.FilterWrapper[]) filterWrappers
                     .toArray( new FileUtils.FilterWrapper[filterWrappers.size()] );
                 File filterTo = filterFileName(to, wrappers);
-                FileUtils.copyFile( from, filterTo, encoding, wrappers );
+                output = filterTo;
+                unlink( from, filterTo );
+                if ( usedExpressions != null && mayContainExpression( to.getName(), wrappers ) )
+                {
+                    usedExpressions.add( ExecutionState.ANY_EXPRESSION );
+                }
+                if ( mavenResourcesExecution != null && mavenResourcesExecution.isPrescanFilteredFiles()
+                    && !mayContainDelimiters( from, wrappers, encoding ) )
+                {
+                    if ( getLogger().isDebugEnabled() )
+                    {
+                        debug( "no delimiter found in " + from.getPath() + ", copying it as is" );
+                    }
+                    written = copyBytes( from, filterTo, skipUnchangedWrites );
+                    mavenResourcesExecution.getStatistics().addPassthroughFile();
+                }
+                else
+                {
+                    written = filterFile( from, filterTo, encoding, wrappers, skipUnchangedWrites, usedExpressions );
+                    if ( mavenResourcesExecution != null )
+                    {
+                        mavenResourcesExecution.getStatistics().addFilteredFile();
+                    }
+                }
             }
             else
             {
                 if ( getLogger().isDebugEnabled() )
                 {
-                    getLogger().debug( "copy " + from.getPath() + " to " + to.getPath() );
+                    debug( "copy " + from.getPath() + " to " + to.getPath() );
+                }
+                boolean preserveLastModified =
+                    mavenResourcesExecution != null && mavenResourcesExecution.isPreserveLastModified();
+                upToDate = !overwrite && isUpToDate( from, to, preserveLastModified );
+                if ( upToDate )
+                {
+                    written = false;
+                }
+                else if ( linking && linker.link( from, to ) )
+                {
+                    if ( getLogger().isDebugEnabled() )
+                    {
+                        debug( to.getPath() + " linked to " + from.getPath() );
+                    }
+                    mavenResourcesExecution.getStatistics().addLinkedFile();
+                }
+                else
+                {
+                    unlink( from, to );
+                    copyBytes( from, to, false );
+                    if ( preserveLastModified )
+                    {
+                        to.setLastModified( from.lastModified() );
+                    }
+                }
+                if ( mavenResourcesExecution != null )
+                {
+                    mavenResourcesExecution.getStatistics().addCopiedFile();
                 }
-                FileUtils.copyFile( from, to, encoding, new FileUtils.FilterWrapper[0], overwrite );
             }
-
-            buildContext.refresh( to );
         }
         catch ( IOException e )
         {
             throw new MavenFilteringException( e.getMessage(), e );
         }
-        
+
+        if ( upToDate )
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                debug( to.getPath() + " is up to date, not copied" );
+            }
+        }
+        else if ( !written )
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                debug( "content of " + to.getPath() + " unchanged, not written" );
+            }
+            if ( mavenResourcesExecution != null )
+            {
+                mavenResourcesExecution.getStatistics().addWriteAvoided();
+            }
+        }
+        if ( state != null )
+        {
+            state.record( from, to, output, filtering, usedExpressions );
+        }
+        return written;
+    }
+
+    /**
+     * Delete a destination which shares its data with another file, so that writing it can't change a source. This
+     * is done whatever the link mode, a previous build may have linked the destination in another mode.
+     */
+    private void unlink( File from, File to )
+        throws IOException
+    {
+        if ( FileLinker.isLinked( to ) && !FileLinker.unresolved( from ).equals( FileLinker.unresolved( to ) ) )
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                debug( "deleting " + to.getPath() + " which may be linked to its source before writing it" );
+            }
+            to.delete();
+        }
+    }
+
+    private void debug( String message )
+    {
+        List messages = (List) deferredMessages.get();
+        if ( messages != null )
+        {
+            messages.add( message );
+        }
+        else
+        {
+            getLogger().debug( message );
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the outputs of these filter wrappers only depend on the expressions found by a
+     *         {@link CompiledTemplate}: no wrapper, or only the default one
+     * @since 1.2
+     */
+    static boolean isRecordable( List filterWrappers )
+    {
+        return filterWrappers == null || filterWrappers.isEmpty()
+            || ( filterWrappers.size() == 1 && filterWrappers.get( 0 ) instanceof Wrapper );
+    }
+
+    /**
+     * @param filterWrappers filter wrappers for which {@link #isRecordable(List)} is <code>true</code>
+     * @param expression an expression including its delimiters
+     * @return the value the filter wrappers give to the expression, <code>null</code> if it can't be resolved
+     * @since 1.2
+     */
+    static String resolve( List filterWrappers, String expression )
+    {
+        if ( filterWrappers == null || filterWrappers.isEmpty() )
+        {
+            return null;
+        }
+        return ( (Wrapper) filterWrappers.get( 0 ) ).resolve( expression );
+    }
+
+    private static boolean mayContainExpression( String text, FilterWrapper[] wrappers )
+    {
+        for ( int i = 0; i < wrappers.length; i++ )
+        {
+            if ( !( wrappers[i] instanceof Wrapper ) || ( (Wrapper) wrappers[i] ).mayContainExpression( text ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forget the values of the expressions resolved by the default filter wrappers of this list, to be called when
+     * the properties or objects behind them have changed.
+     *
+     * @param filterWrappers {@link FileUtils.FilterWrapper}s, can be <code>null</code>
+     * @since 1.2
+     */
+    static void clearAnswers( List filterWrappers )
+    {
+        if ( filterWrappers == null )
+        {
+            return;
+        }
+        for ( Iterator it = filterWrappers.iterator(); it.hasNext(); )
+        {
+            Object wrapper = it.next();
+            if ( wrapper instanceof Wrapper )
+            {
+                ( (Wrapper) wrapper ).getAnswerCache().clear();
+            }
+        }
+    }
+
+    /**
+     * Filter a file, through its {@link CompiledTemplate} when the filter wrappers are the default ones.
+     *
+     * @param skipUnchanged compare the filtered content with an existing destination, and only write what differs
+     * @param usedExpressions receives the expressions found in the file, or {@link ExecutionState#ANY_EXPRESSION}
+     *            if they are not known, can be <code>null</code>
+     * @return <code>false</code> if the destination was left as is as its content would not change
+     */
+    private static boolean filterFile( File from, File to, String encoding, FilterWrapper[] wrappers,
+                                       boolean skipUnchanged, Collection usedExpressions )
+        throws IOException
+    {
+        Wrapper wrapper = null;
+        CompiledTemplate template = null;
+        if ( wrappers.length == 1 && wrappers[0] instanceof Wrapper )
+        {
+            wrapper = (Wrapper) wrappers[0];
+            template = getCompiledTemplate( from, encoding, wrapper, usedExpressions != null );
+        }
+        if ( usedExpressions != null )
+        {
+            if ( template != null )
+            {
+                usedExpressions.addAll( Arrays.asList( template.getExpressions() ) );
+            }
+            else if ( wrappers.length > 0 )
+            {
+                usedExpressions.add( ExecutionState.ANY_EXPRESSION );
+            }
+        }
+        if ( template == null && !skipUnchanged )
+        {
+            FileUtils.copyFile( from, to, encoding, wrappers );
+            return true;
+        }
+
+        if ( !prepareDestination( from, to ) )
+        {
+            return false;
+        }
+        OutputStream out = skipUnchanged && to.exists() ? new ComparingFileOutputStream( to )
+                        : (OutputStream) new FileOutputStream( to );
+        Reader reader = null;
+        Writer writer = null;
+        try
+        {
+            if ( StringUtils.isEmpty( encoding ) )
+            {
+                writer = new OutputStreamWriter( out );
+            }
+            else
+            {
+                writer = new OutputStreamWriter( out, encoding );
+            }
+            if ( template != null )
+            {
+                wrapper.render( template, writer );
+            }
+            else
+            {
+                // as FileUtils.copyFile
+                reader = newReader( from, encoding );
+                for ( int i = 0; i < wrappers.length; i++ )
+                {
+                    reader = wrappers[i].getReader( reader );
+                }
+                IOUtil.copy( reader, writer );
+            }
+            writer.close();
+        }
+        finally
+        {
+            IOUtil.close( reader );
+            IOUtil.close( writer );
+            IOUtil.close( out );
+        }
+        return !( out instanceof ComparingFileOutputStream ) || ( (ComparingFileOutputStream) out ).isChanged();
+    }
+
+    private static Reader newReader( File file, String encoding )
+        throws IOException
+    {
+        if ( StringUtils.isEmpty( encoding ) )
+        {
+            return new BufferedReader( new FileReader( file ) );
+        }
+        return new BufferedReader( new InputStreamReader( new FileInputStream( file ), encoding ) );
+    }
+
+    /**
+     * @param uncached compile the file even if it is too big to be cached
+     * @return the template of the file, from the cache if the file has not changed since it was compiled, or
+     *         <code>null</code> if the file is too big or can't be compiled
+     */
+    private static CompiledTemplate getCompiledTemplate( File file, String encoding, Wrapper wrapper,
+                                                         boolean uncached )
+        throws IOException
+    {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        if ( length > MAX_TEMPLATE_LENGTH )
+        {
+            return uncached ? compile( file, encoding, wrapper ) : null;
+        }
+
+        String key = file.getAbsolutePath() + '|' + encoding + '|' + wrapper.getGrammarKey();
+        CompiledTemplate template = (CompiledTemplate) TEMPLATES.get( key );
+        if ( template != null && template.isCompiledFrom( length, lastModified ) )
+        {
+            return template;
+        }
+
+        template = compile( file, encoding, wrapper );
+
+        // a file changed again within the timestamp resolution could keep the same length and modification time
+        if ( template != null && System.currentTimeMillis() - lastModified > TIMESTAMP_RESOLUTION )
+        {
+            template.setSource( length, lastModified );
+            TEMPLATES.put( key, template, template.getSize() );
+        }
+        else
+        {
+            TEMPLATES.remove( key );
+        }
+        return template;
+    }
+
+    private static CompiledTemplate compile( File file, String encoding, Wrapper wrapper )
+        throws IOException
+    {
+        Reader reader = null;
+        try
+        {
+            reader = newReader( file, encoding );
+            return wrapper.compile( reader );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    /**
+     * Check the raw bytes of a file for the first byte of a delimiter or of the escape string.
+     *
+     * @return <code>false</code> only if the file can be copied as is, which requires the filter wrappers to be
+     *         the default ones and an ascii compatible encoding
+     */
+    private static boolean mayContainDelimiters( File file, FilterWrapper[] wrappers, String encoding )
+        throws IOException
+    {
+        if ( wrappers.length == 0 || !isAsciiCompatible( encoding ) )
+        {
+            return true;
+        }
+
+        boolean[] leadBytes = new boolean[128];
+        for ( int i = 0; i < wrappers.length; i++ )
+        {
+            if ( !( wrappers[i] instanceof Wrapper ) )
+            {
+                return true;
+            }
+            String leadChars = ( (Wrapper) wrappers[i] ).delimiterMatcher.getLeadChars();
+            for ( int j = 0; j < leadChars.length(); j++ )
+            {
+                char ch = leadChars.charAt( j );
+                if ( ch >= leadBytes.length )
+                {
+                    return true;
+                }
+                leadBytes[ch] = true;
+            }
+        }
+
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                for ( int i = 0; i < n; i++ )
+                {
+                    int b = buffer[i];
+                    if ( b >= 0 && leadBytes[b] )
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * @return <code>true</code> if every ascii character is encoded as the same single byte and this byte value
+     *         can't be part of the encoding of another character
+     */
+    private static boolean isAsciiCompatible( String encoding )
+    {
+        String name;
+        try
+        {
+            name = Charset.forName( StringUtils.isEmpty( encoding ) ? ReaderFactory.FILE_ENCODING : encoding ).name();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return false;
+        }
+        return "UTF-8".equals( name ) || "US-ASCII".equals( name ) || name.startsWith( "ISO-8859-" )
+            || name.startsWith( "windows-125" );
+    }
+
+    /**
+     * A destination is up to date if it is not older than its source, as with
+     * {@link FileUtils#copyFile(File, File, String, FilterWrapper[], boolean)}. With
+     * {@link MavenResourcesExecution#isPreserveLastModified()}, a destination with the modification time of its
+     * source but another size is not: it has been changed or truncated since it was copied.
+     *
+     * @param preserveLastModified if the destinations are given the modification time of their source
+     */
+    private static boolean isUpToDate( File from, File to, boolean preserveLastModified )
+    {
+        long lastModified = to.lastModified();
+        if ( lastModified == 0 )
+        {
+            // does not exist
+            return false;
+        }
+        long sourceLastModified = from.lastModified();
+        if ( preserveLastModified && lastModified == sourceLastModified )
+        {
+            return to.length() == from.length();
+        }
+        return lastModified >= sourceLastModified;
+    }
+
+    /**
+     * Create the directory of a destination if needed, as {@link FileUtils#copyFile(File, File)} does.
+     *
+     * @return <code>false</code> if the destination is the source itself, which must not be written
+     */
+    private static boolean prepareDestination( File from, File to )
+        throws IOException
+    {
+        if ( from.getCanonicalPath().equals( to.getCanonicalPath() ) )
+        {
+            return false;
+        }
+        File directory = to.getParentFile();
+        if ( directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory() )
+        {
+            throw new IOException( "Cannot create directory " + directory.getPath() );
+        }
+        return true;
+    }
+
+    /**
+     * @param skipUnchanged compare the content with an existing destination, and only write what differs
+     * @return <code>false</code> if the destination was left as is as its content would not change
+     */
+    private static boolean copyBytes( File from, File to, boolean skipUnchanged )
+        throws IOException
+    {
+        if ( !prepareDestination( from, to ) )
+        {
+            return false;
+        }
+        FileInputStream in = null;
+        OutputStream out = null;
+        try
+        {
+            in = new FileInputStream( from );
+            if ( skipUnchanged && to.exists() )
+            {
+                ComparingFileOutputStream comparing = new ComparingFileOutputStream( to );
+                out = comparing;
+                IOUtil.copy( in, comparing );
+                comparing.close();
+                return comparing.isChanged();
+            }
+
+            FileOutputStream fileOut = new FileOutputStream( to );
+            out = fileOut;
+            FileChannel source = in.getChannel();
+            FileChannel target = fileOut.getChannel();
+            long size = source.size();
+            long position = 0;
+            while ( position < size )
+            {
+                long count = source.transferTo( position, size - position, target );
+                if ( count <= 0 )
+                {
+                    break;
+                }
+                position += count;
+            }
+            return true;
+        }
+        finally
+        {
+            IOUtil.close( in );
+            IOUtil.close( out );
+        }
     }
 
     /** 
@@ -246,12 +889,10 @@ public class DefaultMavenFileFilter
             getLogger().debug( "properties used " + filterProperties );
         }
 
-        final ValueSource propertiesValueSource = new PropertiesBasedValueSource( filterProperties );
-
         if ( request != null )
         {
             FileUtils.FilterWrapper wrapper = new Wrapper( request.getDelimiters(), request.getMavenProject(),
-                                                           request.getMavenSession(), propertiesValueSource,
+                                                           request.getMavenSession(), filterProperties,
                                                            request.getProjectStartExpressions(),
                                                            request.getEscapeString(), request.isEscapeWindowsPaths(),
                                                            request.isSupportMultiLineFiltering() );
@@ -264,6 +905,10 @@ public class DefaultMavenFileFilter
 
     /**
      * protected only for testing reason !
+     * <p>
+     * The files are read at the same time, then their values are resolved in order so that each file sees the
+     * values of the previous ones.
+     * </p>
      */
     protected void loadProperties( Properties filterProperties, List /* String */propertiesFilePaths,
                                  Properties baseProps )
@@ -274,6 +919,8 @@ public class DefaultMavenFileFilter
             Properties workProperties = new Properties();
             workProperties.putAll( baseProps );
 
+            List filterFiles = new ArrayList( propertiesFilePaths.size() );
+            List filterFileNames = new ArrayList( propertiesFilePaths.size() );
             for ( Iterator iterator = propertiesFilePaths.iterator(); iterator.hasNext(); )
             {
                 String filterFile = (String) iterator.next();
@@ -282,16 +929,26 @@ public class DefaultMavenFileFilter
                     // skip empty file name
                     continue;
                 }
+                // TODO new File should be new File(mavenProject.getBasedir(), filterfile ) ?
+                filterFiles.add( new File( filterFile ) );
+                filterFileNames.add( filterFile );
+            }
+
+            File[] files = (File[]) filterFiles.toArray( new File[filterFiles.size()] );
+            PropertyFileCache cache = PropertyFileCache.getInstance();
+            PropertyFileCache.Content[] contents = cache.readAll( files );
+            for ( int i = 0; i < files.length; i++ )
+            {
                 try
                 {
-                    // TODO new File should be new File(mavenProject.getBasedir(), filterfile ) ?
-                    Properties properties = PropertyUtils.loadPropertyFile( new File( filterFile ), workProperties );
+                    Properties properties = cache.load( files[i], workProperties, contents[i] );
                     filterProperties.putAll( properties );
                     workProperties.putAll( properties );
                 }
                 catch ( IOException e )
                 {
-                    throw new MavenFilteringException( "Error loading property file '" + filterFile + "'", e );
+                    throw new MavenFilteringException( "Error loading property file '" + filterFileNames.get( i )
+                        + "'", e );
                 }
             }
         }
@@ -300,32 +957,109 @@ public class DefaultMavenFileFilter
     /*
      * Filter the name of a file using the same mechanism for filtering the content of the file.
      */
-    private File filterFileName(File file, FilterWrapper[] wrappers) throws IOException {
-    	
-        if ( wrappers != null && wrappers.length > 0 ) {
-        	
-            Reader reader = new StringReader(file.getName());
-            for ( int i = 0; i < wrappers.length; i++ ) {
-                FilterWrapper wrapper = wrappers[i];
-                reader = wrapper.getReader( reader );
-            }
-            StringWriter writer = new StringWriter();
-            
-            IOUtil.copy(reader, writer);
-            
-            String filteredFilename = writer.toString();
-            
-            if (getLogger().isDebugEnabled()) {
-            	getLogger().debug( "renaming filename " + file.getName() + " to " + filteredFilename );
+    private File filterFileName( File file, FilterWrapper[] wrappers )
+        throws IOException
+    {
+        if ( wrappers != null && wrappers.length > 0 )
+        {
+            String filteredFilename = filterName( file.getName(), wrappers );
+            if ( filteredFilename.equals( file.getName() ) )
+            {
+                return file;
             }
-                        
-            return new File(file.getParentFile(),filteredFilename);
+
+            if ( getLogger().isDebugEnabled() )
+            {
+                debug( "renaming filename " + file.getName() + " to " + filteredFilename );
+            }
+
+            return new File( file.getParentFile(), filteredFilename );
         }
-        else {
-        	return file;
+        else
+        {
+            return file;
         }
     }
-    
+
+    /**
+     * Filter a relative path, each of its directory and file names being filtered as a file name is.
+     *
+     * @param path a path whose names are separated by <code>/</code> or {@link File#separatorChar}
+     * @param filterWrappers {@link FileUtils.FilterWrapper}s, can be <code>null</code>
+     * @return the filtered path, with the same separators
+     * @since 1.2
+     */
+    static String filterPath( String path, List filterWrappers )
+        throws IOException
+    {
+        if ( filterWrappers == null || filterWrappers.isEmpty() )
+        {
+            return path;
+        }
+        FileUtils.FilterWrapper[] wrappers =
+            (FileUtils.FilterWrapper[]) filterWrappers.toArray( new FileUtils.FilterWrapper[filterWrappers.size()] );
+        if ( !mayContainExpression( path, wrappers ) )
+        {
+            return path;
+        }
+
+        StringBuffer filtered = new StringBuffer( path.length() );
+        int start = 0;
+        for ( int i = 0; i <= path.length(); i++ )
+        {
+            if ( i == path.length() || path.charAt( i ) == '/' || path.charAt( i ) == File.separatorChar )
+            {
+                filtered.append( filterName( path.substring( start, i ), wrappers ) );
+                if ( i < path.length() )
+                {
+                    filtered.append( path.charAt( i ) );
+                }
+                start = i + 1;
+            }
+        }
+        return filtered.toString();
+    }
+
+    /**
+     * Filter a name with the default filter wrappers without a reader chain, through the reader chain of the
+     * wrappers otherwise.
+     */
+    private static String filterName( String name, FilterWrapper[] wrappers )
+        throws IOException
+    {
+        if ( name.length() == 0 )
+        {
+            return name;
+        }
+
+        boolean defaultWrappers = true;
+        for ( int i = 0; i < wrappers.length; i++ )
+        {
+            defaultWrappers &= wrappers[i] instanceof Wrapper;
+        }
+        if ( defaultWrappers )
+        {
+            String filtered = name;
+            for ( int i = 0; i < wrappers.length && filtered != null; i++ )
+            {
+                filtered = ( (Wrapper) wrappers[i] ).filterName( filtered );
+            }
+            if ( filtered != null )
+            {
+                return filtered;
+            }
+        }
+
+        Reader reader = new StringReader( name );
+        for ( int i = 0; i < wrappers.length; i++ )
+        {
+            reader = wrappers[i].getReader( reader );
+        }
+        StringWriter writer = new StringWriter();
+        IOUtil.copy( reader, writer );
+        return writer.toString();
+    }
+
     private static final class Wrapper extends FileUtils.FilterWrapper
     {
         
@@ -345,51 +1079,184 @@ public class DefaultMavenFileFilter
         
         private boolean supportMultiLineFiltering;
 
+        private final DelimiterMatcher delimiterMatcher;
+
+        private final String grammarKey;
+
+        /** values of the expressions, shared by all the readers and templates of this wrapper */
+        private final AnswerCache answerCache;
+
         Wrapper( LinkedHashSet delimiters, MavenProject project, MavenSession mavenSession,
-                 ValueSource propertiesValueSource, List projectStartExpressions, String escapeString,
+                 Properties filterProperties, List projectStartExpressions, String escapeString,
                  boolean escapeWindowsPaths, boolean supportMultiLineFiltering )
         {
             super();
             this.delimiters = delimiters;
             this.project = project;
             this.mavenSession = mavenSession;
-            this.propertiesValueSource = propertiesValueSource;
+            this.propertiesValueSource = new PropertiesBasedValueSource( filterProperties );
             this.projectStartExpressions = projectStartExpressions;
             this.escapeString = escapeString;
             this.escapeWindowsPaths = escapeWindowsPaths;
             this.supportMultiLineFiltering = supportMultiLineFiltering;
+            this.delimiterMatcher = new DelimiterMatcher( delimiters, escapeString );
+            this.grammarKey =
+                delimiterMatcher.getSpecifications() + " " + escapeString + " " + supportMultiLineFiltering;
+
+            MultiDelimiterStringSearchInterpolator interpolator = createInterpolator();
+            interpolator.setCacheAnswers( true );
+            this.answerCache =
+                new AnswerCache( ResolvedProperties.resolve( filterProperties, interpolator,
+                                                             createRecursionInterceptor(),
+                                                             delimiterMatcher.getSpecifications() ) );
         }
 
         public Reader getReader( Reader reader )
         {
-            MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
-            interpolator.setDelimiterSpecs( delimiters );
+            MultiDelimiterInterpolatorFilterReaderLineEnding filterReader = 
+                new MultiDelimiterInterpolatorFilterReaderLineEnding( reader, createInterpolator(),
+                                                                      supportMultiLineFiltering );
+            filterReader.setRecursionInterceptor( createRecursionInterceptor() );
+            filterReader.setDelimiterMatcher( delimiterMatcher );
+            filterReader.setAnswerCache( answerCache );
+            
+            filterReader.setInterpolateWithPrefixPattern( false );
+            filterReader.setEscapeString( escapeString );
             
-            RecursionInterceptor ri = null;
+            return filterReader;
+        }
+
+        /**
+         * @return the template of a resource, following the same grammar as the readers of this wrapper, or
+         *         <code>null</code> if the resource can't be compiled
+         */
+        CompiledTemplate compile( Reader reader )
+            throws IOException
+        {
+            return CompiledTemplate.compile( reader, delimiterMatcher, supportMultiLineFiltering );
+        }
+
+        /**
+         * Writes a compiled resource with the values the readers of this wrapper would use.
+         */
+        void render( CompiledTemplate template, Writer writer )
+            throws IOException
+        {
+            MultiDelimiterStringSearchInterpolator interpolator = createInterpolator();
+            // as done by the reader
+            interpolator.setCacheAnswers( true );
+            template.render( writer, interpolator, createRecursionInterceptor(), answerCache );
+        }
+
+        /**
+         * @return identifies the delimiters, escape string and multi line support used to parse the resources
+         */
+        String getGrammarKey()
+        {
+            return grammarKey;
+        }
+
+        /**
+         * @return the values of the expressions already resolved by this wrapper
+         */
+        AnswerCache getAnswerCache()
+        {
+            return answerCache;
+        }
+
+        /**
+         * @return the value the readers of this wrapper give to the expression, <code>null</code> if it can't be
+         *         resolved
+         */
+        String resolve( String expression )
+        {
+            MultiDelimiterStringSearchInterpolator interpolator = createInterpolator();
+            interpolator.setCacheAnswers( true );
+            try
+            {
+                return answerCache.interpolate( interpolator, expression, createRecursionInterceptor() );
+            }
+            catch ( InterpolationException e )
+            {
+                return null;
+            }
+        }
+
+        /**
+         * Filter a file name with the values the readers of this wrapper would use, without creating a reader when
+         * the name contains no character starting a delimiter or the escape string.
+         *
+         * @return the filtered name, or <code>null</code> if the name can't be compiled
+         */
+        String filterName( String name )
+            throws IOException
+        {
+            if ( !mayContainExpression( name ) )
+            {
+                return name;
+            }
+            CompiledTemplate template = compile( new StringReader( name ) );
+            if ( template == null )
+            {
+                return null;
+            }
+            if ( template.getExpressionCount() == 0 )
+            {
+                // only escaped tokens or lone delimiter characters
+                StringWriter writer = new StringWriter( name.length() );
+                template.render( writer, null, null, null );
+                return writer.toString();
+            }
+            StringWriter writer = new StringWriter( name.length() );
+            render( template, writer );
+            return writer.toString();
+        }
+
+        /**
+         * @return <code>false</code> if the text contains no character starting a delimiter or the escape string
+         */
+        boolean mayContainExpression( String text )
+        {
+            char[] chars = text.toCharArray();
+            return delimiterMatcher.indexOfLeadChar( chars, 0, chars.length ) < chars.length;
+        }
+
+        private RecursionInterceptor createRecursionInterceptor()
+        {
             if ( projectStartExpressions != null && !projectStartExpressions.isEmpty() )
             {
-                ri = new PrefixAwareRecursionInterceptor( projectStartExpressions, true );
+                return new PrefixAwareRecursionInterceptor( projectStartExpressions, true );
             }
             else
             {
-                ri = new SimpleRecursionInterceptor();
+                return new SimpleRecursionInterceptor();
             }
+        }
+
+        private MultiDelimiterStringSearchInterpolator createInterpolator()
+        {
+            MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+            interpolator.setDelimiterSpecs( delimiters );
             
             interpolator.addValueSource( propertiesValueSource );
             
             if ( project != null )
             {
-                interpolator.addValueSource( new PrefixedObjectValueSource( projectStartExpressions, project, true ) );
+                ValueSource projectValueSource = new CompiledObjectValueSource( project );
+                interpolator.addValueSource( new PrefixedValueSourceWrapper( projectValueSource,
+                                                                             projectStartExpressions, true ) );
             }
             
             if ( mavenSession != null )
             {
-                interpolator.addValueSource( new PrefixedObjectValueSource( "session", mavenSession ) );
+                ValueSource sessionValueSource = new CompiledObjectValueSource( mavenSession );
+                interpolator.addValueSource( new PrefixedValueSourceWrapper( sessionValueSource, "session" ) );
                 
                 final Settings settings = mavenSession.getSettings();
                 if ( settings != null )
                 {
-                    interpolator.addValueSource( new PrefixedObjectValueSource( "settings", settings ) );
+                    ValueSource settingsValueSource = new CompiledObjectValueSource( settings );
+                    interpolator.addValueSource( new PrefixedValueSourceWrapper( settingsValueSource, "settings" ) );
                     interpolator.addValueSource( new SingleResponseValueSource( "localRepository",
                                                                                 settings.getLocalRepository() ) );
                 }
@@ -413,15 +1280,7 @@ public class DefaultMavenFileFilter
                 } );
             }
             
-            MultiDelimiterInterpolatorFilterReaderLineEnding filterReader = 
-                new MultiDelimiterInterpolatorFilterReaderLineEnding( reader, interpolator, supportMultiLineFiltering );
-            filterReader.setRecursionInterceptor( ri );
-            filterReader.setDelimiterSpecs( delimiters );
-            
-            filterReader.setInterpolateWithPrefixPattern( false );
-            filterReader.setEscapeString( escapeString );
-            
-            return filterReader;
+            return interpolator;
         }
         
     }    
@@ -23,8 +23,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Resource;
@@ -128,6 +131,45 @@ public class DefaultMavenResourcesFiltering
         return filteredFileExtension;
     }
 
+    /**
+     * Same as {@link #filteredFileExtension(String, List)} with the extensions compiled for the execution, which also
+     * ignore the case of the extensions, and support extensions with dots and file name patterns.
+     */
+    private boolean filteredFileExtension( String fileName, MavenResourcesExecution mavenResourcesExecution )
+    {
+        boolean filteredFileExtension = !mavenResourcesExecution.getNonFilteredFileMatcher().matches( fileName );
+        if ( getLogger().isDebugEnabled() )
+        {
+            getLogger().debug(
+                               "file " + fileName + " has a" + ( filteredFileExtension ? " " : " non " )
+                                   + "filtered file extension" );
+        }
+        return filteredFileExtension;
+    }
+
+    private boolean isBinary( File source, MavenResourcesExecution mavenResourcesExecution )
+        throws MavenFilteringException
+    {
+        boolean binary;
+        try
+        {
+            binary = BinaryContentDetector.isBinary( source, mavenResourcesExecution.getEncoding() );
+        }
+        catch ( IOException e )
+        {
+            throw new MavenFilteringException( e.getMessage(), e );
+        }
+        if ( binary )
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug( "file " + source.getName() + " has a binary content, not filtered" );
+            }
+            mavenResourcesExecution.getStatistics().addBinaryFile();
+        }
+        return binary;
+    }
+
     public List getDefaultNonFilteredFileExtensions()
     {
         return this.defaultNonFilteredFileExtensions;
@@ -163,6 +205,9 @@ public class DefaultMavenResourcesFiltering
             mavenResourcesExecution.setFilterWrappers( filterWrappers );
         }
 
+        // wrappers reused from a previous execution may have values which are no longer the right ones
+        DefaultMavenFileFilter.clearAnswers( mavenResourcesExecution.getFilterWrappers() );
+
         if ( mavenResourcesExecution.getEncoding() == null || mavenResourcesExecution.getEncoding().length() < 1 )
         {
             getLogger().warn(
@@ -175,7 +220,40 @@ public class DefaultMavenResourcesFiltering
                               "Using '" + mavenResourcesExecution.getEncoding()
                                   + "' encoding to copy filtered resources." );
         }
-        
+
+        ExecutionState state = null;
+        ExecutionState previous = null;
+        // what the previous execution wrote, even with other settings
+        ExecutionState recorded = null;
+        if ( mavenResourcesExecution.getStateFile() != null && mavenFileFilter instanceof DefaultMavenFileFilter
+            && DefaultMavenFileFilter.isRecordable( mavenResourcesExecution.getFilterWrappers() ) )
+        {
+            String settings = getSettings( mavenResourcesExecution );
+            previous = ExecutionState.load( mavenResourcesExecution.getStateFile() );
+            recorded = previous;
+            if ( previous != null
+                && ( !previous.getSettings().equals( settings ) || mavenResourcesExecution.isOverwrite() ) )
+            {
+                // everything has to be copied again
+                previous = null;
+            }
+            if ( previous != null
+                && previous.isUpToDate( settings, getDestinations( mavenResourcesExecution ),
+                                        mavenResourcesExecution.getFilterWrappers() ) )
+            {
+                getLogger().info( "Resources unchanged since the last execution, skip copying/filtering" );
+                return;
+            }
+            // a state which does not match the outputs any more must not be found if this execution fails
+            mavenResourcesExecution.getStateFile().delete();
+            state = new ExecutionState( settings );
+        }
+        mavenResourcesExecution.setExecutionState( state );
+        mavenResourcesExecution.getCreatedDirectories().clear();
+        mavenResourcesExecution.compileNonFilteredFileExtensions( getDefaultNonFilteredFileExtensions() );
+        // false once a resource is only scanned for the files changed since the last build
+        boolean fullScan = true;
+
         for ( Iterator i = mavenResourcesExecution.getResources().iterator(); i.hasNext(); )
         {
             Resource resource = (Resource) i.next();
@@ -197,13 +275,7 @@ public class DefaultMavenResourcesFiltering
 
             String targetPath = resource.getTargetPath();
 
-            File resourceDirectory = new File( resource.getDirectory() );
-
-            if ( !resourceDirectory.isAbsolute() )
-            {
-                resourceDirectory = new File( mavenResourcesExecution.getResourcesBaseDirectory(), resourceDirectory
-                    .getPath() );
-            }
+            File resourceDirectory = getResourceDirectory( resource, mavenResourcesExecution );
 
             if ( !resourceDirectory.exists() )
             {
@@ -219,59 +291,96 @@ public class DefaultMavenResourcesFiltering
             {
                 throw new MavenFilteringException( "Cannot create resource output directory: " + outputDirectory );
             }
+            mavenResourcesExecution.getCreatedDirectories().add( outputDirectory );
             
             boolean ignoreDelta =
                 !outputExists || buildContext.hasDelta( mavenResourcesExecution.getFileFilters() )
                     || buildContext.hasDelta( getRelativeOutputDirectory( mavenResourcesExecution ) );
             getLogger().debug( "ignoreDelta " + ignoreDelta );
-            Scanner scanner = buildContext.newScanner( resourceDirectory, ignoreDelta );
-
-            setupScanner( resource, scanner );
 
-            scanner.scan();
+            File targetDirectory = targetPath == null ? outputDirectory : new File( outputDirectory, targetPath );
+            boolean parallel =
+                mavenResourcesExecution.getParallelism() > 1 && mavenFileFilter instanceof DefaultMavenFileFilter;
+            ResourceCopier resourceCopier =
+                new ResourceCopier( resource, resourceDirectory, outputDirectory, targetDirectory, previous, state,
+                                    mavenResourcesExecution );
 
-            if ( mavenResourcesExecution.isIncludeEmptyDirs() )
+            if ( ignoreDelta && !buildContext.isIncremental() )
             {
+                // full build: the files are copied as soon as they are found
+                if ( mavenResourcesExecution.isIncludeEmptyDirs() && resourceDirectory.equals( targetDirectory ) )
+                {
+                    throw new MavenFilteringException( "Cannot copy directory structure from "
+                        + resourceDirectory.getPath() + " to " + outputDirectory.getPath() );
+                }
+                if ( parallel )
+                {
+                    resourceCopier.start();
+                }
                 try
                 {
-                    File targetDirectory = targetPath == null ? outputDirectory
-                                                             : new File( outputDirectory, targetPath );
-                    copyDirectoryLayout( resourceDirectory, targetDirectory, scanner );
+                    newWalker( resource, resourceDirectory ).walk( resourceCopier );
+                    resourceCopier.finish();
                 }
-                catch ( IOException e )
+                finally
                 {
-                    throw new MavenFilteringException( "Cannot copy directory structure from "
-                        + resourceDirectory.getPath() + " to " + outputDirectory.getPath() );
+                    resourceCopier.stop();
                 }
+
+                getLogger().info( "Copied " + resourceCopier.getCount() + " resource"
+                                      + ( resourceCopier.getCount() > 1 ? "s" : "" )
+                                      + ( targetPath == null ? "" : " to " + targetPath ) );
             }
+            else
+            {
+                fullScan = fullScan && ignoreDelta;
+                Scanner scanner = buildContext.newScanner( resourceDirectory, ignoreDelta );
 
-            List includedFiles = Arrays.asList( scanner.getIncludedFiles() );
+                setupScanner( resource, scanner );
 
-            getLogger().info(
-                              "Copying " + includedFiles.size() + " resource" + ( includedFiles.size() > 1 ? "s" : "" )
-                                  + ( targetPath == null ? "" : " to " + targetPath ) );
+                scanner.scan();
 
-            for ( Iterator j = includedFiles.iterator(); j.hasNext(); )
-            {
-                String name = (String) j.next();
+                if ( mavenResourcesExecution.isIncludeEmptyDirs() )
+                {
+                    try
+                    {
+                        copyDirectoryLayout( resourceDirectory, targetDirectory, scanner, resource,
+                                             mavenResourcesExecution );
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new MavenFilteringException( "Cannot copy directory structure from "
+                            + resourceDirectory.getPath() + " to " + outputDirectory.getPath() );
+                    }
+                }
 
-                File source = new File( resourceDirectory, name );
+                List includedFiles = Arrays.asList( scanner.getIncludedFiles() );
 
-                //File destinationFile = new File( outputDirectory, destination );
+                getLogger().info( "Copying " + includedFiles.size() + " resource"
+                                      + ( includedFiles.size() > 1 ? "s" : "" )
+                                      + ( targetPath == null ? "" : " to " + targetPath ) );
 
-                File destinationFile = getDestinationFile( outputDirectory, targetPath, name );
-                
-                boolean filteredExt = filteredFileExtension( source.getName(), mavenResourcesExecution
-                    .getNonFilteredFileExtensions() );
-                
-                mavenFileFilter.copyFile( source, destinationFile, resource.isFiltering() && filteredExt,
-                                          mavenResourcesExecution.getFilterWrappers(), mavenResourcesExecution
-                                              .getEncoding(), mavenResourcesExecution.isOverwrite() );
+                if ( parallel && includedFiles.size() > 1 )
+                {
+                    resourceCopier.start();
+                }
+                try
+                {
+                    for ( Iterator j = includedFiles.iterator(); j.hasNext(); )
+                    {
+                        resourceCopier.visitFile( (String) j.next() );
+                    }
+                    resourceCopier.finish();
+                }
+                finally
+                {
+                    resourceCopier.stop();
+                }
             }
 
             // deal with deleted source files
 
-            scanner = buildContext.newDeleteScanner( resourceDirectory );
+            Scanner scanner = buildContext.newDeleteScanner( resourceDirectory );
             
             setupScanner( resource, scanner );
             
@@ -283,7 +392,10 @@ public class DefaultMavenResourcesFiltering
             {
                 String name = (String) j.next();
 
-                File destinationFile = getDestinationFile( outputDirectory, targetPath, name );
+                File destinationFile =
+                    getDestinationFile( outputDirectory, targetPath,
+                                        getDestinationName( name, resource, mavenResourcesExecution ),
+                                        mavenResourcesExecution );
                 
                 destinationFile.delete();
                 
@@ -292,9 +404,164 @@ public class DefaultMavenResourcesFiltering
 
         }
 
+        if ( state != null )
+        {
+            mavenResourcesExecution.setExecutionState( null );
+            if ( !fullScan && previous != null )
+            {
+                // the files which did not change are still there
+                state.keepUnvisited( previous );
+            }
+            if ( fullScan && recorded != null && mavenResourcesExecution.isRemoveStaleOutputs() )
+            {
+                removeStaleOutputs( recorded, state, mavenResourcesExecution );
+            }
+            saveState( state, mavenResourcesExecution );
+        }
+
+        if ( getLogger().isDebugEnabled() )
+        {
+            getLogger().debug( "resources " + mavenResourcesExecution.getStatistics() );
+        }
+    }
+
+    /**
+     * Delete the outputs of the previous execution which the current one did not write, unless they have been
+     * modified since.
+     */
+    private void removeStaleOutputs( ExecutionState recorded, ExecutionState state,
+                                     MavenResourcesExecution mavenResourcesExecution )
+    {
+        for ( Iterator it = recorded.getRemovedEntries( state ).iterator(); it.hasNext(); )
+        {
+            ExecutionState.Entry entry = (ExecutionState.Entry) it.next();
+            File output = new File( entry.output );
+            if ( !entry.isOutputUnchanged() )
+            {
+                getLogger().debug( "stale output " + output.getPath() + " changed since written, not removed" );
+            }
+            else if ( output.delete() )
+            {
+                getLogger().debug( "removed stale output " + output.getPath() );
+                mavenResourcesExecution.getStatistics().addRemovedOutput();
+                buildContext.refresh( output );
+            }
+        }
+    }
+
+    private void saveState( ExecutionState state, MavenResourcesExecution mavenResourcesExecution )
+    {
+        File stateFile = mavenResourcesExecution.getStateFile();
+        state.resolveValues( mavenResourcesExecution.getFilterWrappers() );
+        try
+        {
+            state.save( stateFile );
+        }
+        catch ( IOException e )
+        {
+            getLogger().warn( "Cannot save " + stateFile.getPath() + ": " + e.getMessage() );
+            stateFile.delete();
+        }
+    }
+
+    /**
+     * @return digest of everything deciding which files are copied where, and how they are filtered, except the
+     *         values of the expressions
+     */
+    private String getSettings( MavenResourcesExecution mavenResourcesExecution )
+    {
+        StringBuffer settings = new StringBuffer();
+        settings.append( mavenResourcesExecution.getOutputDirectory().getAbsolutePath() ).append( '\n' );
+        settings.append( mavenResourcesExecution.getEncoding() ).append( '\n' );
+        settings.append( mavenResourcesExecution.getEscapeString() ).append( '\n' );
+        settings.append( mavenResourcesExecution.isEscapeWindowsPaths() ).append( '\n' );
+        settings.append( mavenResourcesExecution.isSupportMultiLineFiltering() ).append( '\n' );
+        settings.append( mavenResourcesExecution.getDelimiters() ).append( '\n' );
+        settings.append( mavenResourcesExecution.isIncludeEmptyDirs() ).append( '\n' );
+        settings.append( mavenResourcesExecution.isFilterDirectoryNames() ).append( '\n' );
+        settings.append( mavenResourcesExecution.isDetectBinaryFiles() ).append( '\n' );
+        settings.append( mavenResourcesExecution.getLinkMode() ).append( '\n' );
+        settings.append( getDefaultNonFilteredFileExtensions() ).append( '\n' );
+        settings.append( mavenResourcesExecution.getNonFilteredFileExtensions() ).append( '\n' );
+        settings.append( mavenResourcesExecution.getFilterWrappers() == null
+            || mavenResourcesExecution.getFilterWrappers().isEmpty() ).append( '\n' );
+        for ( Iterator i = mavenResourcesExecution.getResources().iterator(); i.hasNext(); )
+        {
+            Resource resource = (Resource) i.next();
+            settings.append( getResourceDirectory( resource, mavenResourcesExecution ).getAbsolutePath() );
+            settings.append( ' ' ).append( resource.getTargetPath() );
+            settings.append( ' ' ).append( resource.getIncludes() );
+            settings.append( ' ' ).append( resource.getExcludes() );
+            settings.append( ' ' ).append( resource.isFiltering() ).append( '\n' );
+        }
+        return ExecutionState.digest( settings.toString() );
+    }
+
+    /**
+     * @return {@link Map} of the absolute path of each destination to its source {@link File}
+     */
+    private Map getDestinations( MavenResourcesExecution mavenResourcesExecution )
+        throws MavenFilteringException
+    {
+        Map destinations = new HashMap();
+        for ( Iterator i = mavenResourcesExecution.getResources().iterator(); i.hasNext(); )
+        {
+            Resource resource = (Resource) i.next();
+            File resourceDirectory = getResourceDirectory( resource, mavenResourcesExecution );
+            if ( !resourceDirectory.exists() )
+            {
+                continue;
+            }
+
+            String[] includedFiles;
+            if ( buildContext.isIncremental() )
+            {
+                Scanner scanner = buildContext.newScanner( resourceDirectory, true );
+                setupScanner( resource, scanner );
+                scanner.scan();
+                includedFiles = scanner.getIncludedFiles();
+            }
+            else
+            {
+                final List files = new ArrayList();
+                newWalker( resource, resourceDirectory ).walk( new ResourceWalker.Visitor()
+                {
+                    public void visitDirectory( String name )
+                    {
+                        // only the files have destinations
+                    }
+
+                    public void visitFile( String name )
+                    {
+                        files.add( name );
+                    }
+                } );
+                includedFiles = (String[]) files.toArray( EMPTY_STRING_ARRAY );
+            }
+            for ( int j = 0; j < includedFiles.length; j++ )
+            {
+                File destination =
+                    getDestination( mavenResourcesExecution.getOutputDirectory(), resource.getTargetPath(),
+                                    getDestinationName( includedFiles[j], resource, mavenResourcesExecution ) );
+                destinations.put( destination.getAbsolutePath(), new File( resourceDirectory, includedFiles[j] ) );
+            }
+        }
+        return destinations;
+    }
+
+    private File getResourceDirectory( Resource resource, MavenResourcesExecution mavenResourcesExecution )
+    {
+        File resourceDirectory = new File( resource.getDirectory() );
+
+        if ( !resourceDirectory.isAbsolute() )
+        {
+            resourceDirectory = new File( mavenResourcesExecution.getResourcesBaseDirectory(), resourceDirectory
+                .getPath() );
+        }
+        return resourceDirectory;
     }
 
-    private File getDestinationFile( File outputDirectory, String targetPath, String name )
+    private File getDestination( File outputDirectory, String targetPath, String name )
     {
       String destination = name;
 
@@ -307,15 +574,102 @@ public class DefaultMavenResourcesFiltering
       if ( !destinationFile.isAbsolute() )
       {
           destinationFile = new File( outputDirectory, destination );
-      }                
-      
-      if ( !destinationFile.getParentFile().exists() )
-      {
-          destinationFile.getParentFile().mkdirs();
       }
       return destinationFile;
     }
 
+    /**
+     * @param name path of a file relative to its resource directory
+     * @return the path of its destination relative to the target path, with the directory names filtered if the
+     *         execution asks for it
+     */
+    private String getDestinationName( String name, Resource resource,
+                                       MavenResourcesExecution mavenResourcesExecution )
+        throws MavenFilteringException
+    {
+        if ( !mavenResourcesExecution.isFilterDirectoryNames() || !resource.isFiltering() )
+        {
+            return name;
+        }
+        int index = Math.max( name.lastIndexOf( '/' ), name.lastIndexOf( File.separatorChar ) );
+        if ( index < 0 )
+        {
+            return name;
+        }
+        return filterPath( name.substring( 0, index ), mavenResourcesExecution ) + name.substring( index );
+    }
+
+    private String filterPath( String path, MavenResourcesExecution mavenResourcesExecution )
+        throws MavenFilteringException
+    {
+        try
+        {
+            return DefaultMavenFileFilter.filterPath( path, mavenResourcesExecution.getFilterWrappers() );
+        }
+        catch ( IOException e )
+        {
+            throw new MavenFilteringException( e.getMessage(), e );
+        }
+    }
+
+    private File getDestinationFile( File outputDirectory, String targetPath, String name,
+                                     MavenResourcesExecution mavenResourcesExecution )
+    {
+      File destinationFile = getDestination( outputDirectory, targetPath, name );
+
+      mkdirs( destinationFile.getParentFile(), mavenResourcesExecution );
+      return destinationFile;
+    }
+
+    /**
+     * Create a directory and its parents unless the execution already did or found them. A directory whose parent is
+     * known to exist is created with a single call, without checking first if it exists.
+     */
+    private void mkdirs( File directory, MavenResourcesExecution mavenResourcesExecution )
+    {
+        Set createdDirectories = mavenResourcesExecution.getCreatedDirectories();
+        if ( createdDirectories.contains( directory ) )
+        {
+            return;
+        }
+
+        FilteringStatistics statistics = mavenResourcesExecution.getStatistics();
+        File parent = directory.getParentFile();
+        if ( parent != null && createdDirectories.contains( parent ) )
+        {
+            statistics.addDirectoryCreation();
+            directory.mkdir();
+        }
+        else
+        {
+            statistics.addDirectoryCheck();
+            if ( !directory.exists() )
+            {
+                statistics.addDirectoryCreation();
+                directory.mkdirs();
+            }
+        }
+        createdDirectories.add( directory );
+    }
+
+    /**
+     * @return a walker with the includes and excludes {@link #setupScanner(Resource, Scanner)} gives to a scanner
+     */
+    private ResourceWalker newWalker( Resource resource, File resourceDirectory )
+    {
+        String[] includes = null;
+        if ( resource.getIncludes() != null && !resource.getIncludes().isEmpty() )
+        {
+            includes = (String[]) resource.getIncludes().toArray( EMPTY_STRING_ARRAY );
+        }
+        String[] excludes = null;
+        if ( resource.getExcludes() != null && !resource.getExcludes().isEmpty() )
+        {
+            excludes = (String[]) resource.getExcludes().toArray( EMPTY_STRING_ARRAY );
+        }
+        return new ResourceWalker( resourceDirectory, includes, excludes, true );
+    }
+
     private String[] setupScanner( Resource resource, Scanner scanner )
     {
       String[] includes = null;
@@ -340,8 +694,9 @@ public class DefaultMavenResourcesFiltering
       return includes;
     }
     
-    private void copyDirectoryLayout( File sourceDirectory, File destinationDirectory, Scanner scanner )
-        throws IOException
+    private void copyDirectoryLayout( File sourceDirectory, File destinationDirectory, Scanner scanner,
+                                      Resource resource, MavenResourcesExecution mavenResourcesExecution )
+        throws IOException, MavenFilteringException
     {
         if ( sourceDirectory == null )
         {
@@ -376,8 +731,155 @@ public class DefaultMavenResourcesFiltering
                 continue;
             }
 
+            if ( mavenResourcesExecution.isFilterDirectoryNames() && resource.isFiltering() )
+            {
+                name = filterPath( name, mavenResourcesExecution );
+            }
             File destination = new File( destinationDirectory, name );
-            destination.mkdirs();
+            mkdirs( destination, mavenResourcesExecution );
+        }
+    }
+
+    /**
+     * Copies the files of a resource directory as they are given, on the calling thread or, once started, with the
+     * worker threads of the execution.
+     */
+    private final class ResourceCopier
+        implements ResourceWalker.Visitor
+    {
+        private final Resource resource;
+
+        private final File resourceDirectory;
+
+        private final File outputDirectory;
+
+        private final File targetDirectory;
+
+        private final ExecutionState previous;
+
+        private final ExecutionState state;
+
+        private final MavenResourcesExecution mavenResourcesExecution;
+
+        private ParallelCopier copier;
+
+        private int count;
+
+        ResourceCopier( Resource resource, File resourceDirectory, File outputDirectory, File targetDirectory,
+                        ExecutionState previous, ExecutionState state,
+                        MavenResourcesExecution mavenResourcesExecution )
+        {
+            this.resource = resource;
+            this.resourceDirectory = resourceDirectory;
+            this.outputDirectory = outputDirectory;
+            this.targetDirectory = targetDirectory;
+            this.previous = previous;
+            this.state = state;
+            this.mavenResourcesExecution = mavenResourcesExecution;
+        }
+
+        /**
+         * Copy the files with the worker threads of the execution from now on.
+         */
+        void start()
+        {
+            copier = ( (DefaultMavenFileFilter) mavenFileFilter ).startCopies( mavenResourcesExecution );
+        }
+
+        /**
+         * Wait for the copies done by the worker threads.
+         */
+        void finish()
+            throws MavenFilteringException
+        {
+            if ( copier != null )
+            {
+                ( (DefaultMavenFileFilter) mavenFileFilter ).finishCopies( copier );
+            }
+        }
+
+        void stop()
+        {
+            if ( copier != null )
+            {
+                copier.stop();
+                copier = null;
+            }
+        }
+
+        /**
+         * @return number of files given
+         */
+        int getCount()
+        {
+            return count;
+        }
+
+        public void visitDirectory( String name )
+            throws MavenFilteringException
+        {
+            if ( !mavenResourcesExecution.isIncludeEmptyDirs() || name.length() == 0 )
+            {
+                return;
+            }
+            if ( mavenResourcesExecution.isFilterDirectoryNames() && resource.isFiltering() )
+            {
+                name = filterPath( name, mavenResourcesExecution );
+            }
+            mkdirs( new File( targetDirectory, name ), mavenResourcesExecution );
+        }
+
+        public void visitFile( String name )
+            throws MavenFilteringException
+        {
+            count++;
+
+            File source = new File( resourceDirectory, name );
+
+            File destinationFile =
+                getDestinationFile( outputDirectory, resource.getTargetPath(),
+                                    getDestinationName( name, resource, mavenResourcesExecution ),
+                                    mavenResourcesExecution );
+
+            if ( previous != null )
+            {
+                // only the files whose source, output or expression values changed are copied again
+                ExecutionState.Entry entry =
+                    previous.getUpToDateEntry( source, destinationFile.getAbsolutePath(),
+                                               mavenResourcesExecution.getFilterWrappers() );
+                if ( entry != null )
+                {
+                    state.keep( entry );
+                    mavenResourcesExecution.getStatistics().addUpToDateFile();
+                    return;
+                }
+            }
+
+            boolean filteredExt = filteredFileExtension( source.getName(), mavenResourcesExecution );
+            if ( resource.isFiltering() && filteredExt && mavenResourcesExecution.isDetectBinaryFiles()
+                && isBinary( source, mavenResourcesExecution ) )
+            {
+                filteredExt = false;
+            }
+
+            if ( copier != null )
+            {
+                ( (DefaultMavenFileFilter) mavenFileFilter ).submitCopy( copier, new ParallelCopier.Copy(
+                    source, destinationFile, resource.isFiltering() && filteredExt ) );
+            }
+            else if ( mavenFileFilter instanceof DefaultMavenFileFilter )
+            {
+                ( (DefaultMavenFileFilter) mavenFileFilter ).copyFile( source, destinationFile,
+                                                                       resource.isFiltering() && filteredExt,
+                                                                       mavenResourcesExecution );
+            }
+            else
+            {
+                mavenFileFilter.copyFile( source, destinationFile, resource.isFiltering() && filteredExt,
+                                          mavenResourcesExecution.getFilterWrappers(),
+                                          mavenResourcesExecution.getEncoding(),
+                                          mavenResourcesExecution.isOverwrite() );
+            }
         }
     }
 
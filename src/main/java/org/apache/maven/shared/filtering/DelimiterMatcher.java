@@ -0,0 +1,189 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
+
+/**
+ * Delimiter specifications and escape string compiled into lookup tables, so that the start of a token can be
+ * recognized from its first character in constant time whatever the number of delimiters.
+ * <p>
+ * When several delimiters start with the same character, the first one in iteration order wins, as the previous
+ * linear scan did.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class DelimiterMatcher
+{
+    private static final int TABLE_SIZE = 128;
+
+    /** specification per ascii lead character */
+    private final DelimiterSpecification[] asciiSpecs = new DelimiterSpecification[TABLE_SIZE];
+
+    /** true for ascii characters starting a delimiter or the escape string */
+    private final boolean[] asciiLeads = new boolean[TABLE_SIZE];
+
+    /** {@link Character} to {@link DelimiterSpecification} for the other lead characters */
+    private final Map otherSpecs = new HashMap();
+
+    private final List specifications;
+
+    private final String escapeString;
+
+    private final int escapeLead;
+
+    private final String leadChars;
+
+    /**
+     * @param specifications {@link Collection} of {@link DelimiterSpecification} or of {@link String} specifications
+     *            like '${*}' or '@'
+     * @param escapeString the escape string, can be <code>null</code>
+     */
+    DelimiterMatcher( Collection specifications, String escapeString )
+    {
+        List specs = new ArrayList( specifications.size() );
+        StringBuffer leads = new StringBuffer();
+        for ( Iterator it = specifications.iterator(); it.hasNext(); )
+        {
+            Object spec = it.next();
+            DelimiterSpecification delimiterSpec = spec instanceof DelimiterSpecification
+                ? (DelimiterSpecification) spec : DelimiterSpecification.parse( (String) spec );
+            specs.add( delimiterSpec );
+
+            char lead = delimiterSpec.getBegin().charAt( 0 );
+            if ( leads.toString().indexOf( lead ) < 0 )
+            {
+                leads.append( lead );
+            }
+            if ( lead < TABLE_SIZE )
+            {
+                if ( asciiSpecs[lead] == null )
+                {
+                    asciiSpecs[lead] = delimiterSpec;
+                    asciiLeads[lead] = true;
+                }
+            }
+            else if ( !otherSpecs.containsKey( new Character( lead ) ) )
+            {
+                otherSpecs.put( new Character( lead ), delimiterSpec );
+            }
+        }
+        this.specifications = Collections.unmodifiableList( specs );
+
+        if ( escapeString != null && escapeString.length() > 0 )
+        {
+            this.escapeString = escapeString;
+            this.escapeLead = escapeString.charAt( 0 );
+            if ( escapeLead < TABLE_SIZE )
+            {
+                asciiLeads[escapeLead] = true;
+            }
+            if ( leads.toString().indexOf( escapeLead ) < 0 )
+            {
+                leads.append( (char) escapeLead );
+            }
+        }
+        else
+        {
+            this.escapeString = null;
+            this.escapeLead = -1;
+        }
+        this.leadChars = leads.toString();
+    }
+
+    /**
+     * @param ch a character or -1
+     * @return the first specification whose begin token starts with this character, <code>null</code> if none
+     */
+    DelimiterSpecification getSpecification( int ch )
+    {
+        if ( ch < 0 )
+        {
+            return null;
+        }
+        if ( ch < TABLE_SIZE )
+        {
+            return asciiSpecs[ch];
+        }
+        return otherSpecs.isEmpty() ? null : (DelimiterSpecification) otherSpecs.get( new Character( (char) ch ) );
+    }
+
+    /**
+     * @return <code>true</code> if a delimiter or the escape string starts with this character
+     */
+    boolean isLeadChar( char ch )
+    {
+        if ( ch < TABLE_SIZE )
+        {
+            return asciiLeads[ch];
+        }
+        return ch == escapeLead || ( !otherSpecs.isEmpty() && otherSpecs.containsKey( new Character( ch ) ) );
+    }
+
+    /**
+     * @return the index of the first character in <code>buf[from, to)</code> which can start a delimiter or the
+     *         escape string, or <code>to</code> if there is none
+     */
+    int indexOfLeadChar( char[] buf, int from, int to )
+    {
+        for ( int i = from; i < to; i++ )
+        {
+            char ch = buf[i];
+            if ( ch < TABLE_SIZE ? asciiLeads[ch] : isLeadChar( ch ) )
+            {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return the characters starting a delimiter or the escape string
+     */
+    String getLeadChars()
+    {
+        return leadChars;
+    }
+
+    /**
+     * @return unmodifiable {@link List} of {@link DelimiterSpecification} in declaration order
+     */
+    List getSpecifications()
+    {
+        return specifications;
+    }
+
+    /**
+     * @return the escape string or <code>null</code>
+     */
+    String getEscapeString()
+    {
+        return escapeString;
+    }
+}
@@ -0,0 +1,172 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+/**
+ * Directory listings read by {@link ResourceWalker}, shared by the builds running in the same JVM so that the
+ * resource directories walked by several executions or modules are listed once.
+ * <p>
+ * A listing holds the names of the entries of a directory and if each one is a file or a directory, and is read
+ * again when the modification time of the directory changed, as it does when an entry is added, removed or renamed.
+ * The sizes and modification times of the files are not kept: a file written in place doesn't change its directory.
+ * </p>
+ *
+ * @since 1.2
+ */
+public final class DirectoryListingCache
+{
+    private static final DirectoryListingCache INSTANCE =
+        new DirectoryListingCache( 10000, DefaultMavenFileFilter.TIMESTAMP_RESOLUTION );
+
+    private final LruCache entries;
+
+    /** directories modified more recently than this are not cached, in milliseconds */
+    private final long timestampResolution;
+
+    private long hits;
+
+    private long misses;
+
+    DirectoryListingCache( int maxEntries, long timestampResolution )
+    {
+        this.entries = new LruCache( maxEntries );
+        this.timestampResolution = timestampResolution;
+    }
+
+    /**
+     * @return the cache used by {@link ResourceWalker}
+     */
+    public static DirectoryListingCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param directory the directory to list
+     * @return the entries of the directory, <code>null</code> if it is not a directory or can't be read
+     */
+    Listing list( File directory )
+    {
+        long lastModified = directory.lastModified();
+        String key = directory.getAbsolutePath();
+
+        Listing listing = (Listing) entries.get( key );
+        if ( listing != null && listing.lastModified == lastModified )
+        {
+            synchronized ( this )
+            {
+                hits++;
+            }
+            return listing;
+        }
+        synchronized ( this )
+        {
+            misses++;
+        }
+
+        String[] names = directory.list();
+        if ( names == null )
+        {
+            entries.remove( key );
+            return null;
+        }
+        listing = new Listing( lastModified, names );
+        for ( int i = 0; i < names.length; i++ )
+        {
+            File file = new File( directory, names[i] );
+            if ( file.isDirectory() )
+            {
+                listing.kinds[i] = Listing.DIRECTORY;
+            }
+            else if ( file.isFile() )
+            {
+                listing.kinds[i] = Listing.FILE;
+            }
+        }
+
+        // a directory changed again within the timestamp resolution could keep the same modification time
+        if ( System.currentTimeMillis() - lastModified > timestampResolution )
+        {
+            entries.put( key, listing );
+        }
+        else
+        {
+            entries.remove( key );
+        }
+        return listing;
+    }
+
+    /**
+     * @return number of directories found in the cache
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return number of directories listed
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Forget all the directories and reset the counters.
+     */
+    public void clear()
+    {
+        entries.clear();
+        synchronized ( this )
+        {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /**
+     * The entries of a directory, not to be modified.
+     */
+    static final class Listing
+    {
+        static final byte OTHER = 0;
+
+        static final byte FILE = 1;
+
+        static final byte DIRECTORY = 2;
+
+        final long lastModified;
+
+        final String[] names;
+
+        /** kind of each entry */
+        final byte[] kinds;
+
+        Listing( long lastModified, String[] names )
+        {
+            this.lastModified = lastModified;
+            this.names = names;
+            this.kinds = new byte[names.length];
+        }
+    }
+}
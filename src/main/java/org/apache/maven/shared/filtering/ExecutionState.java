@@ -0,0 +1,510 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * What an execution wrote, persisted in a state file so that the next execution can tell whether anything changed:
+ * the settings of the execution, each destination with the size and modification time of its source file and of the
+ * output written for it, and the value of each expression found in the filtered files.
+ * <p>
+ * Values are compared rather than the filter properties themselves, so that expressions resolved from the project,
+ * the session or the settings are covered too, and properties which are not used don't matter.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class ExecutionState
+{
+    private static final String VERSION = "2";
+
+    /** expression recorded for files whose expressions are not known, which have to be filtered again each time */
+    static final String ANY_EXPRESSION = "";
+
+    private final String settings;
+
+    /** destination path to {@link Entry}, sorted for a stable file */
+    private final Map entries = new TreeMap();
+
+    /** expression to value */
+    private final Map values = new TreeMap();
+
+    /** expression to {@link Boolean}, <code>true</code> if its value is still the recorded one */
+    private final Map unchangedValues = new HashMap();
+
+    /**
+     * @param settings digest of the settings of the execution
+     */
+    ExecutionState( String settings )
+    {
+        this.settings = settings;
+    }
+
+    /**
+     * Record a copy done by the execution.
+     *
+     * @param source the source file
+     * @param destination the destination given for the source
+     * @param output the file written, different from the destination when its name has been filtered
+     * @param filtered if the source has been filtered
+     * @param expressions the expressions the output depends on, {@link #ANY_EXPRESSION} when not known
+     */
+    synchronized void record( File source, File destination, File output, boolean filtered, Collection expressions )
+    {
+        Entry entry = new Entry();
+        entry.destination = destination.getAbsolutePath();
+        entry.source = source.getAbsolutePath();
+        entry.sourceLength = source.length();
+        entry.sourceLastModified = source.lastModified();
+        entry.output = output.getAbsolutePath();
+        entry.outputLength = output.length();
+        entry.outputLastModified = output.lastModified();
+        entry.recorded = System.currentTimeMillis();
+        entry.filtered = filtered;
+        entry.expressions = (String[]) new TreeSet( expressions ).toArray( new String[0] );
+        entries.put( entry.destination, entry );
+    }
+
+    /**
+     * Record a destination which has not been copied again as it is up to date.
+     *
+     * @param entry the entry recorded by the previous execution
+     */
+    synchronized void keep( Entry entry )
+    {
+        entries.put( entry.destination, entry );
+    }
+
+    /**
+     * Keep the entries of a previous execution for the destinations not recorded by this one whose source still
+     * exists, when this execution only copied the sources changed since.
+     *
+     * @param previous the state of the previous execution, with the same settings
+     */
+    synchronized void keepUnvisited( ExecutionState previous )
+    {
+        for ( Iterator it = previous.entries.values().iterator(); it.hasNext(); )
+        {
+            Entry entry = (Entry) it.next();
+            if ( !entries.containsKey( entry.destination ) && new File( entry.source ).isFile() )
+            {
+                entries.put( entry.destination, entry );
+            }
+        }
+    }
+
+    /**
+     * @return the {@link Entry}s of the outputs recorded but not in the other state, the destinations of the other
+     *         state being found by their path
+     */
+    synchronized List getRemovedEntries( ExecutionState other )
+    {
+        Set outputs = other.getOutputs();
+        List removed = new ArrayList();
+        for ( Iterator it = entries.values().iterator(); it.hasNext(); )
+        {
+            Entry entry = (Entry) it.next();
+            if ( !outputs.contains( entry.output ) )
+            {
+                removed.add( entry );
+            }
+        }
+        return removed;
+    }
+
+    private synchronized Set getOutputs()
+    {
+        Set outputs = new HashSet();
+        for ( Iterator it = entries.values().iterator(); it.hasNext(); )
+        {
+            outputs.add( ( (Entry) it.next() ).output );
+        }
+        return outputs;
+    }
+
+    /**
+     * Store the current value of each expression recorded.
+     *
+     * @param filterWrappers the filter wrappers of the execution
+     */
+    synchronized void resolveValues( List filterWrappers )
+    {
+        values.clear();
+        for ( Iterator it = entries.values().iterator(); it.hasNext(); )
+        {
+            String[] expressions = ( (Entry) it.next() ).expressions;
+            for ( int i = 0; i < expressions.length; i++ )
+            {
+                if ( !values.containsKey( expressions[i] ) && !ANY_EXPRESSION.equals( expressions[i] ) )
+                {
+                    values.put( expressions[i], getValue( filterWrappers, expressions[i] ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the text written for the expression: its value, or the expression itself if it can't be resolved
+     */
+    private static String getValue( List filterWrappers, String expression )
+    {
+        String value = DefaultMavenFileFilter.resolve( filterWrappers, expression );
+        return value == null ? expression : value;
+    }
+
+    /**
+     * @param settings digest of the settings of the current execution
+     * @param destinations {@link Map} of the absolute paths of the destinations to the source files the current
+     *            execution would copy
+     * @param filterWrappers the filter wrappers of the current execution
+     * @return <code>true</code> if copying the sources again would give the outputs already written
+     */
+    boolean isUpToDate( String settings, Map destinations, List filterWrappers )
+    {
+        if ( !this.settings.equals( settings ) || entries.size() != destinations.size() )
+        {
+            return false;
+        }
+        for ( Iterator it = destinations.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry destination = (Map.Entry) it.next();
+            if ( getUpToDateEntry( (File) destination.getValue(), (String) destination.getKey(),
+                                   filterWrappers ) == null )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the settings digest given when recording
+     */
+    String getSettings()
+    {
+        return settings;
+    }
+
+    /**
+     * @param source the source file the current execution would copy
+     * @param destination absolute path of the destination of the source
+     * @param filterWrappers the filter wrappers of the current execution
+     * @return the entry recorded for the destination if copying the source again would give the output already
+     *         written, <code>null</code> otherwise
+     */
+    synchronized Entry getUpToDateEntry( File source, String destination, List filterWrappers )
+    {
+        Entry entry = (Entry) entries.get( destination );
+        if ( entry == null || !entry.source.equals( source.getAbsolutePath() ) || !entry.isUpToDate() )
+        {
+            return null;
+        }
+        for ( int i = 0; i < entry.expressions.length; i++ )
+        {
+            if ( !isUnchanged( entry.expressions[i], filterWrappers ) )
+            {
+                return null;
+            }
+        }
+        return entry;
+    }
+
+    private boolean isUnchanged( String expression, List filterWrappers )
+    {
+        Boolean unchanged = (Boolean) unchangedValues.get( expression );
+        if ( unchanged == null )
+        {
+            Object value = values.get( expression );
+            unchanged = Boolean.valueOf( value != null && value.equals( getValue( filterWrappers, expression ) ) );
+            unchangedValues.put( expression, unchanged );
+        }
+        return unchanged.booleanValue();
+    }
+
+    /**
+     * @return the state, <code>null</code> if the file doesn't exist or can't be read
+     */
+    static ExecutionState load( File file )
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            properties.load( in );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        if ( !VERSION.equals( properties.getProperty( "version" ) ) || properties.getProperty( "settings" ) == null )
+        {
+            return null;
+        }
+        try
+        {
+            ExecutionState state = new ExecutionState( properties.getProperty( "settings" ) );
+            int expressionCount = Integer.parseInt( properties.getProperty( "expressions" ) );
+            String[] expressions = new String[expressionCount];
+            for ( int i = 0; i < expressionCount; i++ )
+            {
+                expressions[i] = properties.getProperty( "expression." + i );
+                String value = properties.getProperty( "value." + i );
+                if ( value != null )
+                {
+                    state.values.put( expressions[i], value );
+                }
+            }
+            int entryCount = Integer.parseInt( properties.getProperty( "entries" ) );
+            for ( int i = 0; i < entryCount; i++ )
+            {
+                Entry entry = Entry.load( properties, "entry." + i + ".", expressions );
+                state.entries.put( entry.destination, entry );
+            }
+            return state;
+        }
+        catch ( RuntimeException e )
+        {
+            // NumberFormatException, missing key: start again
+            return null;
+        }
+    }
+
+    void save( File file )
+        throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty( "version", VERSION );
+        properties.setProperty( "settings", settings );
+
+        // expressions are stored once, and referenced by index from the entries
+        Map indexes = new TreeMap();
+        for ( Iterator it = entries.values().iterator(); it.hasNext(); )
+        {
+            String[] expressions = ( (Entry) it.next() ).expressions;
+            for ( int i = 0; i < expressions.length; i++ )
+            {
+                if ( !indexes.containsKey( expressions[i] ) )
+                {
+                    int index = indexes.size();
+                    indexes.put( expressions[i], new Integer( index ) );
+                    properties.setProperty( "expression." + index, expressions[i] );
+                    if ( values.containsKey( expressions[i] ) )
+                    {
+                        properties.setProperty( "value." + index, (String) values.get( expressions[i] ) );
+                    }
+                }
+            }
+        }
+        properties.setProperty( "expressions", String.valueOf( indexes.size() ) );
+
+        int index = 0;
+        for ( Iterator it = entries.values().iterator(); it.hasNext(); index++ )
+        {
+            ( (Entry) it.next() ).save( properties, "entry." + index + ".", indexes );
+        }
+        properties.setProperty( "entries", String.valueOf( index ) );
+
+        file.getParentFile().mkdirs();
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( file );
+            properties.store( out, "maven-filtering execution state" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    /**
+     * @return hexadecimal MD5 digest of the text
+     */
+    static String digest( String text )
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance( "MD5" ).digest( text.getBytes( "UTF-8" ) );
+            StringBuffer hex = new StringBuffer( digest.length * 2 );
+            for ( int i = 0; i < digest.length; i++ )
+            {
+                hex.append( Character.forDigit( ( digest[i] >> 4 ) & 0xF, 16 ) );
+                hex.append( Character.forDigit( digest[i] & 0xF, 16 ) );
+            }
+            return hex.toString();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // MD5 is required on all platforms
+            throw new IllegalStateException( e.getMessage() );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // UTF-8 is required on all platforms
+            throw new IllegalStateException( e.getMessage() );
+        }
+    }
+
+    /**
+     * A source file and the output written for it.
+     */
+    static final class Entry
+    {
+        String destination;
+
+        String source;
+
+        long sourceLength;
+
+        long sourceLastModified;
+
+        String output;
+
+        long outputLength;
+
+        long outputLastModified;
+
+        /** time the entry was recorded */
+        long recorded;
+
+        boolean filtered;
+
+        /** sorted */
+        String[] expressions;
+
+        /**
+         * @return <code>true</code> if neither the source nor the output changed since recorded, and the output
+         *         doesn't depend on unknown expressions. A source modified within the timestamp resolution before
+         *         it was recorded could have been changed again with the same length and modification time, so it
+         *         is never up to date.
+         */
+        boolean isUpToDate()
+        {
+            File sourceFile = new File( source );
+            return recorded - sourceLastModified > DefaultMavenFileFilter.TIMESTAMP_RESOLUTION
+                && sourceFile.length() == sourceLength && sourceFile.lastModified() == sourceLastModified
+                && isOutputUnchanged() && !( expressions.length > 0 && ANY_EXPRESSION.equals( expressions[0] ) );
+        }
+
+        /**
+         * @return <code>true</code> if the output is still the file recorded
+         */
+        boolean isOutputUnchanged()
+        {
+            File outputFile = new File( output );
+            return outputFile.isFile() && outputFile.length() == outputLength
+                && outputFile.lastModified() == outputLastModified;
+        }
+
+        void save( Properties properties, String prefix, Map indexes )
+        {
+            properties.setProperty( prefix + "destination", destination );
+            properties.setProperty( prefix + "source", source );
+            properties.setProperty( prefix + "sourceLength", String.valueOf( sourceLength ) );
+            properties.setProperty( prefix + "sourceLastModified", String.valueOf( sourceLastModified ) );
+            properties.setProperty( prefix + "output", output );
+            properties.setProperty( prefix + "outputLength", String.valueOf( outputLength ) );
+            properties.setProperty( prefix + "outputLastModified", String.valueOf( outputLastModified ) );
+            properties.setProperty( prefix + "recorded", String.valueOf( recorded ) );
+            properties.setProperty( prefix + "filtered", String.valueOf( filtered ) );
+            StringBuffer references = new StringBuffer();
+            for ( int i = 0; i < expressions.length; i++ )
+            {
+                if ( i > 0 )
+                {
+                    references.append( ',' );
+                }
+                references.append( indexes.get( expressions[i] ) );
+            }
+            properties.setProperty( prefix + "expressions", references.toString() );
+        }
+
+        static Entry load( Properties properties, String prefix, String[] expressions )
+        {
+            Entry entry = new Entry();
+            entry.destination = getRequired( properties, prefix + "destination" );
+            entry.source = getRequired( properties, prefix + "source" );
+            entry.sourceLength = Long.parseLong( getRequired( properties, prefix + "sourceLength" ) );
+            entry.sourceLastModified = Long.parseLong( getRequired( properties, prefix + "sourceLastModified" ) );
+            entry.output = getRequired( properties, prefix + "output" );
+            entry.outputLength = Long.parseLong( getRequired( properties, prefix + "outputLength" ) );
+            entry.outputLastModified = Long.parseLong( getRequired( properties, prefix + "outputLastModified" ) );
+            entry.recorded = Long.parseLong( getRequired( properties, prefix + "recorded" ) );
+            entry.filtered = Boolean.valueOf( getRequired( properties, prefix + "filtered" ) ).booleanValue();
+            String references = getRequired( properties, prefix + "expressions" );
+            if ( references.length() == 0 )
+            {
+                entry.expressions = new String[0];
+            }
+            else
+            {
+                String[] indexes = references.split( "," );
+                entry.expressions = new String[indexes.length];
+                for ( int i = 0; i < indexes.length; i++ )
+                {
+                    entry.expressions[i] = expressions[Integer.parseInt( indexes[i] )];
+                }
+            }
+            return entry;
+        }
+
+        private static String getRequired( Properties properties, String key )
+        {
+            String value = properties.getProperty( key );
+            if ( value == null )
+            {
+                throw new IllegalArgumentException( "missing " + key );
+            }
+            return value;
+        }
+    }
+}
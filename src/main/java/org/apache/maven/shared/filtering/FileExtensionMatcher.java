@@ -0,0 +1,209 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * File extensions compiled once into a trie of their reversed characters, so that a file name is matched by reading
+ * it backwards once, ignoring case and without allocating anything.
+ * <p>
+ * An extension can span several dots, as <code>tar.gz</code>, and a leading dot is ignored. An entry containing
+ * <code>*</code> or <code>?</code> is a pattern matched against the whole file name, as <code>*.min.js</code>.
+ * An empty entry matches the file names without extension.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class FileExtensionMatcher
+{
+    private final Node root = new Node();
+
+    /** patterns in lower case */
+    private final String[] patterns;
+
+    private boolean noExtension;
+
+    /**
+     * @param extensions {@link String}s, <code>null</code> entries are ignored
+     */
+    FileExtensionMatcher( Collection extensions )
+    {
+        List patternList = new ArrayList();
+        for ( Iterator it = extensions.iterator(); it.hasNext(); )
+        {
+            String extension = (String) it.next();
+            if ( extension == null )
+            {
+                continue;
+            }
+            if ( extension.indexOf( '*' ) >= 0 || extension.indexOf( '?' ) >= 0 )
+            {
+                patternList.add( toLowerCase( extension ) );
+            }
+            else
+            {
+                add( extension.startsWith( "." ) ? extension.substring( 1 ) : extension );
+            }
+        }
+        this.patterns = (String[]) patternList.toArray( new String[patternList.size()] );
+    }
+
+    private void add( String extension )
+    {
+        if ( extension.length() == 0 )
+        {
+            noExtension = true;
+            return;
+        }
+        Node node = root;
+        for ( int i = extension.length() - 1; i >= 0; i-- )
+        {
+            node = node.getOrAddChild( Character.toLowerCase( extension.charAt( i ) ) );
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * @param fileName a file name, without its directory
+     * @return <code>true</code> if the file name ends with one of the extensions or matches one of the patterns
+     */
+    boolean matches( String fileName )
+    {
+        int dot = fileName.lastIndexOf( '.' );
+        if ( dot < 0 )
+        {
+            if ( noExtension )
+            {
+                return true;
+            }
+        }
+        else
+        {
+            Node node = root;
+            for ( int i = fileName.length() - 1; i > 0 && node != null; i-- )
+            {
+                node = node.getChild( Character.toLowerCase( fileName.charAt( i ) ) );
+                if ( node != null && node.terminal && fileName.charAt( i - 1 ) == '.' )
+                {
+                    return true;
+                }
+            }
+        }
+        for ( int i = 0; i < patterns.length; i++ )
+        {
+            if ( matches( patterns[i], 0, fileName, 0 ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Match a pattern in lower case against a name from these positions, ignoring the case of the name.
+     */
+    private static boolean matches( String pattern, int p, String name, int n )
+    {
+        // position after the last star, and the name position it was tried with, to backtrack
+        int star = -1;
+        int starName = 0;
+        while ( n < name.length() )
+        {
+            char ch = p < pattern.length() ? pattern.charAt( p ) : 0;
+            if ( ch == '*' )
+            {
+                star = ++p;
+                starName = n;
+            }
+            else if ( p < pattern.length() && ( ch == '?' || ch == Character.toLowerCase( name.charAt( n ) ) ) )
+            {
+                p++;
+                n++;
+            }
+            else if ( star >= 0 )
+            {
+                p = star;
+                n = ++starName;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        while ( p < pattern.length() && pattern.charAt( p ) == '*' )
+        {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static String toLowerCase( String text )
+    {
+        StringBuffer lower = new StringBuffer( text.length() );
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            lower.append( Character.toLowerCase( text.charAt( i ) ) );
+        }
+        return lower.toString();
+    }
+
+    private static final class Node
+    {
+        private char[] keys = new char[0];
+
+        private Node[] children = new Node[0];
+
+        private boolean terminal;
+
+        Node getChild( char key )
+        {
+            for ( int i = 0; i < keys.length; i++ )
+            {
+                if ( keys[i] == key )
+                {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrAddChild( char key )
+        {
+            Node child = getChild( key );
+            if ( child == null )
+            {
+                child = new Node();
+                char[] newKeys = new char[keys.length + 1];
+                System.arraycopy( keys, 0, newKeys, 0, keys.length );
+                newKeys[keys.length] = key;
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy( children, 0, newChildren, 0, children.length );
+                newChildren[children.length] = child;
+                keys = newKeys;
+                children = newChildren;
+            }
+            return child;
+        }
+    }
+}
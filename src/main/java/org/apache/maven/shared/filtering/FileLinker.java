@@ -0,0 +1,351 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.Os;
+
+/**
+ * Makes the destination of a file copied without filtering share the data of its source, following the link mode
+ * of a {@link MavenResourcesExecution}: a copy on write clone, a hard link or a symbolic link.
+ * <p>
+ * Links are created through <code>java.nio.file.Files</code>, looked up by reflection as this library doesn't
+ * require Java 7, and clones with <code>cp --reflink=always</code> for the files big enough to pay for the process.
+ * A way which the platform or the file system doesn't support is not tried again by the same linker, other failures
+ * only make the file copied.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class FileLinker
+{
+    /** smaller files are not cloned, starting a process costs more than copying them */
+    static final long MIN_CLONE_LENGTH = 1024 * 1024;
+
+    private static final Method TO_PATH = getMethod( File.class, "toPath", new Class[0] );
+
+    private static final Class PATH = TO_PATH == null ? null : TO_PATH.getReturnType();
+
+    private static final Class FILE_ATTRIBUTE = getClass( "java.nio.file.attribute.FileAttribute" );
+
+    private static final Class LINK_OPTION = getClass( "java.nio.file.LinkOption" );
+
+    private static final Class FILES = getClass( "java.nio.file.Files" );
+
+    private static final Method CREATE_LINK = getMethod( FILES, "createLink", new Class[] { PATH, PATH } );
+
+    private static final Method CREATE_SYMBOLIC_LINK =
+        FILE_ATTRIBUTE == null ? null : getMethod( FILES, "createSymbolicLink",
+                                                   new Class[] { PATH, PATH, arrayOf( FILE_ATTRIBUTE ) } );
+
+    private static final Method IS_SYMBOLIC_LINK = getMethod( FILES, "isSymbolicLink", new Class[] { PATH } );
+
+    private static final Method GET_ATTRIBUTE =
+        LINK_OPTION == null ? null : getMethod( FILES, "getAttribute",
+                                                new Class[] { PATH, String.class, arrayOf( LINK_OPTION ) } );
+
+    private final String linkMode;
+
+    private volatile boolean cloneFailed = Os.isFamily( Os.FAMILY_WINDOWS );
+
+    private volatile boolean linkFailed = CREATE_LINK == null;
+
+    private volatile boolean symbolicLinkFailed = CREATE_SYMBOLIC_LINK == null;
+
+    /**
+     * @param linkMode one of the <code>LINK_MODE_</code> constants of {@link MavenResourcesExecution}
+     */
+    FileLinker( String linkMode )
+    {
+        this.linkMode = linkMode;
+    }
+
+    /**
+     * @return <code>true</code> if destinations may share the data of their source
+     */
+    boolean isLinking()
+    {
+        return MavenResourcesExecution.LINK_MODE_CLONE.equals( linkMode )
+            || MavenResourcesExecution.LINK_MODE_LINK.equals( linkMode )
+            || MavenResourcesExecution.LINK_MODE_SYMLINK.equals( linkMode );
+    }
+
+    /**
+     * Make a destination share the data of its source, the destination being deleted first and its directory
+     * created if needed.
+     *
+     * @return <code>false</code> if the destination has to be copied
+     */
+    boolean link( File from, File to )
+    {
+        File directory = to.getAbsoluteFile().getParentFile();
+        if ( directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory() )
+        {
+            return false;
+        }
+        if ( MavenResourcesExecution.LINK_MODE_SYMLINK.equals( linkMode ) )
+        {
+            to.delete();
+            return symbolicLink( from, to );
+        }
+        if ( MavenResourcesExecution.LINK_MODE_CLONE.equals( linkMode )
+            || MavenResourcesExecution.LINK_MODE_LINK.equals( linkMode ) )
+        {
+            to.delete();
+            if ( from.length() >= MIN_CLONE_LENGTH && clone( from, to ) )
+            {
+                return true;
+            }
+            return MavenResourcesExecution.LINK_MODE_LINK.equals( linkMode ) && hardLink( from, to );
+        }
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> if writing to the file could change another file: a symbolic link, a file with more
+     *         than one hard link, or a file which can't be checked
+     */
+    static boolean isLinked( File file )
+    {
+        if ( !file.exists() )
+        {
+            return false;
+        }
+        if ( IS_SYMBOLIC_LINK == null || GET_ATTRIBUTE == null )
+        {
+            return true;
+        }
+        try
+        {
+            Object path = TO_PATH.invoke( file, new Object[0] );
+            if ( Boolean.TRUE.equals( IS_SYMBOLIC_LINK.invoke( null, new Object[] { path } ) ) )
+            {
+                return true;
+            }
+            Object links = GET_ATTRIBUTE.invoke( null, new Object[] { path, "unix:nlink",
+                Array.newInstance( LINK_OPTION, 0 ) } );
+            return !( links instanceof Number ) || ( (Number) links ).intValue() > 1;
+        }
+        catch ( Exception e )
+        {
+            // no unix attributes on this file system
+            return true;
+        }
+    }
+
+    /**
+     * @return the canonical path of a file without resolving the file itself if it is a symbolic link, so that a
+     *         link and its target are two different files
+     */
+    static String unresolved( File file )
+        throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if ( parent == null )
+        {
+            return file.getAbsolutePath();
+        }
+        return new File( parent.getCanonicalFile(), file.getName() ).getPath();
+    }
+
+    private boolean clone( File from, File to )
+    {
+        if ( cloneFailed )
+        {
+            return false;
+        }
+        try
+        {
+            Process process = Runtime.getRuntime().exec( new String[] { "cp", "--reflink=always",
+                from.getAbsolutePath(), to.getAbsolutePath() } );
+            process.getOutputStream().close();
+            process.getInputStream().close();
+            String error = IOUtil.toString( process.getErrorStream() );
+            process.getErrorStream().close();
+            if ( process.waitFor() == 0 )
+            {
+                return true;
+            }
+            // no reflink support in cp or in the file system, other errors may be specific to this file
+            if ( isUnsupported( error ) )
+            {
+                cloneFailed = true;
+            }
+        }
+        catch ( IOException e )
+        {
+            // no cp
+            cloneFailed = true;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        to.delete();
+        return false;
+    }
+
+    private boolean hardLink( File from, File to )
+    {
+        if ( linkFailed )
+        {
+            return false;
+        }
+        try
+        {
+            invoke( CREATE_LINK, new Object[] { toPath( to ), toPath( from ) } );
+            return true;
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            linkFailed = true;
+            return false;
+        }
+        catch ( IOException e )
+        {
+            // another file system, or a file which can't be linked
+            return false;
+        }
+    }
+
+    private boolean symbolicLink( File from, File to )
+    {
+        if ( symbolicLinkFailed )
+        {
+            return false;
+        }
+        try
+        {
+            invoke( CREATE_SYMBOLIC_LINK, new Object[] { toPath( to ), toPath( from.getAbsoluteFile() ),
+                Array.newInstance( FILE_ATTRIBUTE, 0 ) } );
+            return true;
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            symbolicLinkFailed = true;
+            return false;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    private static Object toPath( File file )
+    {
+        try
+        {
+            return TO_PATH.invoke( file, new Object[0] );
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e.getMessage() );
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the platform or the file system doesn't support it
+     * @throws IOException if it failed for this file
+     */
+    private static void invoke( Method method, Object[] arguments )
+        throws IOException
+    {
+        try
+        {
+            method.invoke( null, arguments );
+        }
+        catch ( InvocationTargetException e )
+        {
+            Throwable cause = e.getTargetException();
+            if ( cause instanceof UnsupportedOperationException || cause instanceof SecurityException
+                || ( cause instanceof IOException && isUnsupported( cause.getMessage() ) ) )
+            {
+                throw new UnsupportedOperationException( String.valueOf( cause.getMessage() ) );
+            }
+            throw new IOException( String.valueOf( cause.getMessage() ) );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new UnsupportedOperationException( e.getMessage() );
+        }
+    }
+
+    /**
+     * @param message the message of an error, can be <code>null</code>
+     * @return <code>true</code> if the error says that the operation is not supported or not allowed for this user,
+     *         and will fail the same way for other files
+     */
+    private static boolean isUnsupported( String message )
+    {
+        if ( message == null )
+        {
+            return false;
+        }
+        String lower = message.toLowerCase( Locale.ENGLISH );
+        return lower.indexOf( "not supported" ) >= 0 || lower.indexOf( "privilege" ) >= 0;
+    }
+
+    private static Class getClass( String name )
+    {
+        try
+        {
+            return Class.forName( name );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            return null;
+        }
+    }
+
+    private static Class arrayOf( Class type )
+    {
+        return Array.newInstance( type, 0 ).getClass();
+    }
+
+    private static Method getMethod( Class type, String name, Class[] parameterTypes )
+    {
+        if ( type == null )
+        {
+            return null;
+        }
+        for ( int i = 0; i < parameterTypes.length; i++ )
+        {
+            if ( parameterTypes[i] == null )
+            {
+                return null;
+            }
+        }
+        try
+        {
+            return type.getMethod( name, parameterTypes );
+        }
+        catch ( NoSuchMethodException e )
+        {
+            return null;
+        }
+    }
+}
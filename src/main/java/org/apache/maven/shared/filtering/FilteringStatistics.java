@@ -0,0 +1,187 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Counters collected while running a {@link MavenResourcesExecution}.
+ *
+ * @since 1.2
+ */
+public class FilteringStatistics
+{
+
+    private int filteredFiles;
+
+    private int passthroughFiles;
+
+    private int copiedFiles;
+
+    private int writesAvoided;
+
+    private int upToDateFiles;
+
+    private int binaryFiles;
+
+    private int linkedFiles;
+
+    private int directoryChecks;
+
+    private int directoryCreations;
+
+    private int removedOutputs;
+
+    /**
+     * @return number of files which went through the filter wrappers
+     */
+    public synchronized int getFilteredFiles()
+    {
+        return filteredFiles;
+    }
+
+    /**
+     * @return number of files to filter which did not contain any delimiter and have been copied as is
+     */
+    public synchronized int getPassthroughFiles()
+    {
+        return passthroughFiles;
+    }
+
+    /**
+     * @return number of files copied without filtering
+     */
+    public synchronized int getCopiedFiles()
+    {
+        return copiedFiles;
+    }
+
+    /**
+     * @return number of destination files left as is as their content would not have changed
+     */
+    public synchronized int getWritesAvoided()
+    {
+        return writesAvoided;
+    }
+
+    /**
+     * @return number of files neither copied nor filtered as the output recorded in the state file is up to date
+     */
+    public synchronized int getUpToDateFiles()
+    {
+        return upToDateFiles;
+    }
+
+    /**
+     * @return number of files to filter copied without filtering as their content is binary
+     */
+    public synchronized int getBinaryFiles()
+    {
+        return binaryFiles;
+    }
+
+    /**
+     * @return number of files copied without filtering whose destination shares the data of the source
+     */
+    public synchronized int getLinkedFiles()
+    {
+        return linkedFiles;
+    }
+
+    /**
+     * @return number of times the existence of a destination directory has been checked
+     */
+    public synchronized int getDirectoryChecks()
+    {
+        return directoryChecks;
+    }
+
+    /**
+     * @return number of times a destination directory has been created, or found existing while creating it
+     */
+    public synchronized int getDirectoryCreations()
+    {
+        return directoryCreations;
+    }
+
+    /**
+     * @return number of outputs of the previous execution removed as their source is not copied anymore
+     */
+    public synchronized int getRemovedOutputs()
+    {
+        return removedOutputs;
+    }
+
+    synchronized void addFilteredFile()
+    {
+        filteredFiles++;
+    }
+
+    synchronized void addPassthroughFile()
+    {
+        passthroughFiles++;
+    }
+
+    synchronized void addCopiedFile()
+    {
+        copiedFiles++;
+    }
+
+    synchronized void addWriteAvoided()
+    {
+        writesAvoided++;
+    }
+
+    synchronized void addUpToDateFile()
+    {
+        upToDateFiles++;
+    }
+
+    synchronized void addBinaryFile()
+    {
+        binaryFiles++;
+    }
+
+    synchronized void addLinkedFile()
+    {
+        linkedFiles++;
+    }
+
+    synchronized void addDirectoryCheck()
+    {
+        directoryChecks++;
+    }
+
+    synchronized void addDirectoryCreation()
+    {
+        directoryCreations++;
+    }
+
+    synchronized void addRemovedOutput()
+    {
+        removedOutputs++;
+    }
+
+    public synchronized String toString()
+    {
+        return "filtered " + filteredFiles + ", copied as is " + passthroughFiles + ", copied " + copiedFiles
+            + ", unchanged " + writesAvoided + ", up to date " + upToDateFiles + ", binary " + binaryFiles
+            + ", linked " + linkedFiles + ", directories checked " + directoryChecks + ", created "
+            + directoryCreations + ", removed " + removedOutputs;
+    }
+}
@@ -0,0 +1,136 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A synchronized map evicting the least recently used entries once it holds more than a maximum number of entries,
+ * or once the total size given for its entries is more than a maximum size.
+ *
+ * @since 1.2
+ */
+final class LruCache
+{
+    private final Map entries;
+
+    /** key to the {@link Long} size given for its entry, for the entries with a size */
+    private final Map sizes = new HashMap();
+
+    private final long maxSize;
+
+    private long size;
+
+    LruCache( int maxEntries )
+    {
+        this( maxEntries, Long.MAX_VALUE );
+    }
+
+    /**
+     * @param maxEntries maximum number of entries
+     * @param maxSize maximum total size of the entries put with {@link #put(Object, Object, long)}
+     */
+    LruCache( final int maxEntries, long maxSize )
+    {
+        this.maxSize = maxSize;
+        entries = new LinkedHashMap( 16, 0.75f, true )
+        {
+            protected boolean removeEldestEntry( Map.Entry eldest )
+            {
+                if ( size() > maxEntries )
+                {
+                    forgetSize( eldest.getKey() );
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    synchronized Object get( Object key )
+    {
+        return entries.get( key );
+    }
+
+    synchronized void put( Object key, Object value )
+    {
+        put( key, value, 0 );
+    }
+
+    /**
+     * Put an entry, evicting the least recently used ones while the total size is more than the maximum.
+     *
+     * @param size size of the entry, in the unit of the maximum size
+     */
+    synchronized void put( Object key, Object value, long size )
+    {
+        forgetSize( key );
+        entries.put( key, value );
+        if ( size > 0 )
+        {
+            sizes.put( key, new Long( size ) );
+            this.size += size;
+        }
+        for ( Iterator it = entries.keySet().iterator(); this.size > maxSize && it.hasNext(); )
+        {
+            Object eldest = it.next();
+            forgetSize( eldest );
+            it.remove();
+        }
+    }
+
+    synchronized void remove( Object key )
+    {
+        forgetSize( key );
+        entries.remove( key );
+    }
+
+    synchronized void clear()
+    {
+        entries.clear();
+        sizes.clear();
+        size = 0;
+    }
+
+    /**
+     * @return total size of the entries
+     */
+    synchronized long getSize()
+    {
+        return size;
+    }
+
+    private void forgetSize( Object key )
+    {
+        Long entrySize = (Long) sizes.remove( key );
+        if ( entrySize != null )
+        {
+            size -= entrySize.longValue();
+        }
+    }
+
+    synchronized int size()
+    {
+        return entries.size();
+    }
+}
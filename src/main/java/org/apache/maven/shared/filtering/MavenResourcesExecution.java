@@ -22,7 +22,10 @@ package org.apache.maven.shared.filtering;
 import java.io.File;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
@@ -42,6 +45,34 @@ import org.codehaus.plexus.util.FileUtils.FilterWrapper;
 public class MavenResourcesExecution
     extends AbstractMavenFilteringRequest
 {
+    /**
+     * Files copied without filtering are copied.
+     *
+     * @since 1.2
+     */
+    public static final String LINK_MODE_COPY = "copy";
+
+    /**
+     * Files copied without filtering are cloned with copy on write when the file system supports it (btrfs, xfs),
+     * copied otherwise.
+     *
+     * @since 1.2
+     */
+    public static final String LINK_MODE_CLONE = "clone";
+
+    /**
+     * Files copied without filtering are cloned when possible, hard linked otherwise, copied if neither works.
+     *
+     * @since 1.2
+     */
+    public static final String LINK_MODE_LINK = "link";
+
+    /**
+     * Files copied without filtering are symbolic links to their source when possible, copied otherwise.
+     *
+     * @since 1.2
+     */
+    public static final String LINK_MODE_SYMLINK = "symlink";
    
     /** @see org.apache.maven.model.Resource  */
     private List resources;
@@ -78,6 +109,93 @@ public class MavenResourcesExecution
      * @since 1.0
      */
     private boolean supportMultiLineFiltering;    
+
+    /**
+     * Check the raw bytes of the files to filter for the first character of a delimiter or of the escape string,
+     * and copy them as is when there is none. Only used with the default filter wrappers and an ascii compatible
+     * encoding.
+     *
+     * @since 1.2
+     */
+    private boolean prescanFilteredFiles = false;
+
+    /**
+     * Number of files copied or filtered at the same time, <code>1</code> by default to copy them one after the
+     * other on the calling thread.
+     *
+     * @since 1.2
+     */
+    private int parallelism = 1;
+
+    /**
+     * Compare the filtered content with the existing destination files, and leave them as is when equal.
+     * <code>false</code> by default.
+     *
+     * @since 1.2
+     */
+    private boolean skipUnchangedWrites = false;
+
+    /**
+     * File recording what the last execution wrote, <code>null</code> by default to not record anything.
+     *
+     * @since 1.2
+     */
+    private File stateFile;
+
+    /**
+     * Filter the directory names of the relative paths of the filtered resources, not only their file names.
+     * <code>false</code> by default.
+     *
+     * @since 1.2
+     */
+    private boolean filterDirectoryNames = false;
+
+    /**
+     * Look at the first bytes of the files to filter, and copy them without filtering when they are binary.
+     * <code>false</code> by default.
+     *
+     * @since 1.2
+     */
+    private boolean detectBinaryFiles = false;
+
+    /**
+     * Give the files copied without filtering the modification time of their source. <code>false</code> by default.
+     *
+     * @since 1.2
+     */
+    private boolean preserveLastModified = false;
+
+    /**
+     * How the files copied without filtering are written, {@link #LINK_MODE_COPY} by default.
+     *
+     * @since 1.2
+     */
+    private String linkMode = LINK_MODE_COPY;
+
+    /**
+     * Delete the outputs recorded in the state file whose sources are not copied anymore. <code>false</code> by
+     * default.
+     *
+     * @since 1.2
+     */
+    private boolean removeStaleOutputs = false;
+
+    /** creates the links of the link mode, <code>null</code> until used */
+    private FileLinker fileLinker;
+
+    /** what this execution writes, when a state file is used */
+    private ExecutionState executionState;
+
+    /** default and user non filtered file extensions, compiled for the current execution */
+    private FileExtensionMatcher nonFilteredFileMatcher;
+
+    /** destination directories known to exist during the current execution */
+    private final Set createdDirectories = Collections.synchronizedSet( new HashSet() );
+
+    /**
+     * @since 1.2
+     */
+    private FilteringStatistics statistics = new FilteringStatistics();
     
     public MavenResourcesExecution()
     {
@@ -373,6 +491,15 @@ public class MavenResourcesExecution
         mre.setResourcesBaseDirectory( mre.getResourcesBaseDirectory() );
         mre.setUseDefaultFilterWrappers( mre.isUseDefaultFilterWrappers() );
         mre.setSupportMultiLineFiltering( mre.isSupportMultiLineFiltering() );
+        mre.setPrescanFilteredFiles( isPrescanFilteredFiles() );
+        mre.setParallelism( getParallelism() );
+        mre.setSkipUnchangedWrites( isSkipUnchangedWrites() );
+        mre.setStateFile( getStateFile() );
+        mre.setFilterDirectoryNames( isFilterDirectoryNames() );
+        mre.setDetectBinaryFiles( isDetectBinaryFiles() );
+        mre.setPreserveLastModified( isPreserveLastModified() );
+        mre.setLinkMode( getLinkMode() );
+        mre.setRemoveStaleOutputs( isRemoveStaleOutputs() );
         return mre;
     }
    
@@ -401,4 +528,269 @@ public class MavenResourcesExecution
     {
         this.supportMultiLineFiltering = supportMultiLineFiltering;
     }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isPrescanFilteredFiles()
+    {
+        return prescanFilteredFiles;
+    }
+
+    /**
+     * Copy the files to filter as is when they do not contain the first character of any delimiter or of the
+     * escape string. The files are checked at the byte level, so this only applies with the default filter wrappers
+     * and an ascii compatible encoding.
+     *
+     * @param prescanFilteredFiles
+     * @since 1.2
+     */
+    public void setPrescanFilteredFiles( boolean prescanFilteredFiles )
+    {
+        this.prescanFilteredFiles = prescanFilteredFiles;
+    }
+
+    /**
+     * @return the statistics collected by the executions, never <code>null</code>
+     * @since 1.2
+     */
+    public FilteringStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Number of files of a resource directory copied or filtered at the same time by worker threads. Errors are
+     * reported for the first failing file in scan order, and build context refreshes and log messages happen on the
+     * calling thread in the same order as with a single thread.
+     *
+     * @param parallelism number of worker threads, <code>1</code> or less to use the calling thread only
+     * @since 1.2
+     */
+    public void setParallelism( int parallelism )
+    {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isSkipUnchangedWrites()
+    {
+        return skipUnchangedWrites;
+    }
+
+    /**
+     * Compare the filtered content with the existing destination files while filtering, and only write from the
+     * first difference. Destination files whose content would not change keep their modification time and are not
+     * refreshed in the build context. Files copied without filtering still follow {@link #isOverwrite()}.
+     *
+     * @param skipUnchangedWrites
+     * @since 1.2
+     */
+    public void setSkipUnchangedWrites( boolean skipUnchangedWrites )
+    {
+        this.skipUnchangedWrites = skipUnchangedWrites;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public File getStateFile()
+    {
+        return stateFile;
+    }
+
+    /**
+     * Record what the execution writes in this file. When nothing changed since the recorded execution (settings,
+     * source files, outputs and values of the expressions found in the filtered files), the next execution with the
+     * same state file doesn't copy anything. With {@link #isOverwrite()}, everything is copied whatever the state
+     * says. The file should be in the build directory but not in the output directory, which is usually packaged.
+     *
+     * @param stateFile the state file, <code>null</code> to not record anything
+     * @since 1.2
+     */
+    public void setStateFile( File stateFile )
+    {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isFilterDirectoryNames()
+    {
+        return filterDirectoryNames;
+    }
+
+    /**
+     * Filter each directory name of the path of a file relative to its resource directory, as its file name is, when
+     * the resource is filtered. Empty directories copied with {@link #isIncludeEmptyDirs()} are renamed the same way.
+     *
+     * @param filterDirectoryNames
+     * @since 1.2
+     */
+    public void setFilterDirectoryNames( boolean filterDirectoryNames )
+    {
+        this.filterDirectoryNames = filterDirectoryNames;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isDetectBinaryFiles()
+    {
+        return detectBinaryFiles;
+    }
+
+    /**
+     * Copy the files to filter without filtering them when their first bytes show they are binary: a known magic
+     * number (archives, class files, PDF, fonts, images), a NUL byte, or a sequence which is not valid in the
+     * encoding. This applies on top of {@link #getNonFilteredFileExtensions()}, for the files whose extension doesn't
+     * tell.
+     *
+     * @param detectBinaryFiles
+     * @since 1.2
+     */
+    public void setDetectBinaryFiles( boolean detectBinaryFiles )
+    {
+        this.detectBinaryFiles = detectBinaryFiles;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isPreserveLastModified()
+    {
+        return preserveLastModified;
+    }
+
+    /**
+     * Give the files copied without filtering the modification time of their source, so that the copy is known to be
+     * up to date as long as the source keeps the same modification time and size. Files without filtering are always
+     * copied as bytes, whatever the encoding.
+     *
+     * @param preserveLastModified
+     * @since 1.2
+     */
+    public void setPreserveLastModified( boolean preserveLastModified )
+    {
+        this.preserveLastModified = preserveLastModified;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public String getLinkMode()
+    {
+        return linkMode;
+    }
+
+    /**
+     * Make the files copied without filtering share the data of their source instead of copying it, for big static
+     * resources. A way which the platform or the file systems of the build don't support is not tried again by the
+     * execution, and the file is copied.
+     * <p>
+     * With hard and symbolic links, changing the output changes the source: a destination which may be linked is
+     * deleted before being written, whatever the link mode, but other tools must not modify the outputs in place.
+     * Clones are copy on write and don't have this issue.
+     * </p>
+     *
+     * @param linkMode {@link #LINK_MODE_COPY}, {@link #LINK_MODE_CLONE}, {@link #LINK_MODE_LINK} or
+     *            {@link #LINK_MODE_SYMLINK}, <code>null</code> for {@link #LINK_MODE_COPY}
+     * @since 1.2
+     */
+    public void setLinkMode( String linkMode )
+    {
+        this.linkMode = linkMode == null ? LINK_MODE_COPY : linkMode;
+        this.fileLinker = null;
+    }
+
+    /**
+     * @since 1.2
+     */
+    public boolean isRemoveStaleOutputs()
+    {
+        return removeStaleOutputs;
+    }
+
+    /**
+     * Delete the outputs written by the previous execution with the same {@link #getStateFile()} when this execution
+     * doesn't write them anymore, as their source has been deleted or is no longer included. The previous outputs are
+     * known from the state file, so the output directory is not scanned. An output modified since it was recorded is
+     * left in place. Nothing is removed by an incremental build which only copies the changed files: the outputs of
+     * the deleted files are removed by the build context there.
+     *
+     * @param removeStaleOutputs
+     * @since 1.2
+     */
+    public void setRemoveStaleOutputs( boolean removeStaleOutputs )
+    {
+        this.removeStaleOutputs = removeStaleOutputs;
+    }
+
+    /**
+     * @return the linker of the link mode, shared by the copies of this execution
+     */
+    synchronized FileLinker getFileLinker()
+    {
+        if ( fileLinker == null )
+        {
+            fileLinker = new FileLinker( linkMode );
+        }
+        return fileLinker;
+    }
+
+    ExecutionState getExecutionState()
+    {
+        return executionState;
+    }
+
+    void setExecutionState( ExecutionState executionState )
+    {
+        this.executionState = executionState;
+    }
+
+    /**
+     * Compile the default non filtered file extensions with the ones of this execution, once per execution.
+     *
+     * @param defaultNonFilteredFileExtensions {@link String}s, can be <code>null</code>
+     */
+    void compileNonFilteredFileExtensions( List defaultNonFilteredFileExtensions )
+    {
+        List extensions = new ArrayList();
+        if ( defaultNonFilteredFileExtensions != null )
+        {
+            extensions.addAll( defaultNonFilteredFileExtensions );
+        }
+        if ( nonFilteredFileExtensions != null )
+        {
+            extensions.addAll( nonFilteredFileExtensions );
+        }
+        this.nonFilteredFileMatcher = new FileExtensionMatcher( extensions );
+    }
+
+    /**
+     * @return the extensions compiled by {@link #compileNonFilteredFileExtensions(List)}
+     */
+    FileExtensionMatcher getNonFilteredFileMatcher()
+    {
+        return nonFilteredFileMatcher;
+    }
+
+    /**
+     * @return {@link File}s of the destination directories created or found existing by the current execution
+     */
+    Set getCreatedDirectories()
+    {
+        return createdDirectories;
+    }
 }
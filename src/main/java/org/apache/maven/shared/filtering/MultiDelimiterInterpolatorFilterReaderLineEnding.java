@@ -88,6 +88,24 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
     private boolean supportMultiLineFiltering;
     
     private int preserveChar = -1;
+
+    /** Size of the read-ahead buffer filled from the underlying reader. */
+    private static final int BUFFER_SIZE = 4096;
+
+    /** read-ahead buffer, allocated on first use */
+    private char[] buffer;
+
+    /** Index of the next character to return from the read-ahead buffer */
+    private int bufferPos;
+
+    /** Number of valid characters in the read-ahead buffer */
+    private int bufferLimit;
+
+    /** compiled delimiters and escape string, <code>null</code> when not yet compiled */
+    private DelimiterMatcher delimiterMatcher;
+
+    /** values shared with other readers, <code>null</code> if this reader doesn't share them */
+    private AnswerCache answerCache;
     
     /**
      * This constructor uses default begin token ${ and default end token }.
@@ -129,12 +147,14 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
     
     public boolean removeDelimiterSpec( String delimiterSpec )
     {
+        delimiterMatcher = null;
         return delimiters.remove( DelimiterSpecification.parse( delimiterSpec ) );
     }
     
     public MultiDelimiterInterpolatorFilterReaderLineEnding setDelimiterSpecs( HashSet specs )
     {
         delimiters.clear();
+        delimiterMatcher = null;
         for ( Iterator it = specs.iterator(); it.hasNext(); )
         {
             String spec = (String) it.next();
@@ -143,6 +163,35 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
         
         return this;
     }
+
+    /**
+     * Use delimiters which have already been compiled, rather than compiling them again for each reader.
+     *
+     * @param matcher the compiled delimiters and escape string
+     * @since 1.2
+     */
+    MultiDelimiterInterpolatorFilterReaderLineEnding setDelimiterMatcher( DelimiterMatcher matcher )
+    {
+        delimiters.clear();
+        delimiters.addAll( matcher.getSpecifications() );
+        setEscapeString( matcher.getEscapeString() );
+        delimiterMatcher = matcher;
+
+        return this;
+    }
+
+    /**
+     * Share the values of the expressions with other readers using the same interpolation settings.
+     *
+     * @param answerCache the shared values, <code>null</code> to resolve each expression with the interpolator
+     * @since 1.2
+     */
+    MultiDelimiterInterpolatorFilterReaderLineEnding setAnswerCache( AnswerCache answerCache )
+    {
+        this.answerCache = answerCache;
+
+        return this;
+    }
     
     /**
      * Skips characters. This method will block until some characters are available, an I/O error occurs, or the end of
@@ -184,23 +233,95 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
     public int read( char cbuf[], int off, int len )
         throws IOException
     {
-        for ( int i = 0; i < len; i++ )
+        if ( len == 0 )
         {
-            int ch = read();
-            if ( ch == -1 )
+            return 0;
+        }
+
+        int count = 0;
+        while ( count < len )
+        {
+            if ( hasPendingData() )
             {
-                if ( i == 0 )
+                // replacement text or characters pushed back by the token parser
+                int ch = read();
+                if ( ch == -1 )
                 {
-                    return -1;
+                    break;
                 }
-                else
+                cbuf[off + count++] = (char) ch;
+                continue;
+            }
+
+            if ( bufferPos >= bufferLimit && !fillBuffer() )
+            {
+                break;
+            }
+
+            // copy the literal run up to the next possible token start in one go
+            int start = bufferPos;
+            int limit = Math.min( bufferLimit, start + len - count );
+            int pos = getDelimiterMatcher().indexOfLeadChar( buffer, start, limit );
+            if ( previousIndex != -1 && !supportMultiLineFiltering )
+            {
+                for ( int i = start; i < pos; i++ )
                 {
-                    return i;
+                    if ( buffer[i] == '\n' )
+                    {
+                        previousIndex = -1;
+                        break;
+                    }
                 }
             }
-            cbuf[off + i] = (char) ch;
+
+            if ( pos > start )
+            {
+                System.arraycopy( buffer, start, cbuf, off + count, pos - start );
+                count += pos - start;
+                bufferPos = pos;
+            }
+
+            if ( pos < limit )
+            {
+                // a delimiter or escape string may start here, let the token parser handle it
+                int ch = read();
+                if ( ch == -1 )
+                {
+                    break;
+                }
+                cbuf[off + count++] = (char) ch;
+            }
         }
-        return len;
+
+        return count == 0 ? -1 : count;
+    }
+
+    public boolean ready()
+        throws IOException
+    {
+        return hasPendingData() || bufferPos < bufferLimit || in.ready();
+    }
+
+    /**
+     * Mark is not supported as characters are read ahead from the underlying reader.
+     *
+     * @return <code>false</code>
+     */
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    public void mark( int readAheadLimit )
+        throws IOException
+    {
+        throw new IOException( "mark() not supported" );
+    }
+
+    public void reset()
+        throws IOException
+    {
+        throw new IOException( "reset() not supported" );
     }
 
     /**
@@ -236,7 +357,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
         }
         else
         {
-            ch = in.read();
+            ch = nextChar();
         }
         if ( ch == '\n' && !supportMultiLineFiltering )
         {
@@ -258,7 +379,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
             {
                 for ( int i = 0; i < escapeString.length() - 1; i++ )
                 {
-                    ch = in.read();
+                    ch = nextChar();
                     if ( ch == -1 || ( ch == '\n' && !supportMultiLineFiltering ) )
                     {
                         atEnd = true;
@@ -270,7 +391,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
                 
                 if ( !atEnd )
                 {
-                    ch = in.read();
+                    ch = nextChar();
                     if ( !reselectDelimiterSpec( ch ) )
                     {
                         // here we are after the escape but didn't found the a startToken
@@ -303,7 +424,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
                 }
                 else
                 {
-                    ch = in.read();
+                    ch = nextChar();
                 }
                 if ( ch == '\n' && !supportMultiLineFiltering )
                 {
@@ -343,7 +464,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
                     }
                     else
                     {
-                        ch = in.read();
+                        ch = nextChar();
                     }
 
                     if ( ch != -1 )
@@ -398,14 +519,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
                 }
                 if ( !escapeFound )
                 {
-                    if ( interpolateWithPrefixPattern )
-                    {
-                        value = interpolator.interpolate( key.toString(), "", recursionInterceptor );
-                    }
-                    else
-                    {
-                        value = interpolator.interpolate( key.toString(), recursionInterceptor );
-                    }
+                    value = interpolate( key.toString() );
                 }
             }
             catch ( InterpolationException e )
@@ -437,23 +551,92 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
         return ch;
     }
 
+    /**
+     * @return <code>true</code> if the next character has to come from the replacement or pushed back data rather
+     *         than from the underlying reader
+     */
+    private boolean hasPendingData()
+    {
+        return ( replaceIndex != -1 && replaceIndex < replaceData.length() ) || preserveChar >= 0
+            || ( previousIndex != -1 && previousIndex < this.endToken.length() );
+    }
+
+    /**
+     * Returns the next character of the underlying reader, going through the read-ahead buffer.
+     */
+    private int nextChar()
+        throws IOException
+    {
+        if ( bufferPos >= bufferLimit && !fillBuffer() )
+        {
+            return -1;
+        }
+        return buffer[bufferPos++];
+    }
+
+    private boolean fillBuffer()
+        throws IOException
+    {
+        if ( buffer == null )
+        {
+            buffer = new char[BUFFER_SIZE];
+        }
+        int n;
+        do
+        {
+            n = in.read( buffer, 0, buffer.length );
+        }
+        while ( n == 0 );
+
+        bufferPos = 0;
+        bufferLimit = n < 0 ? 0 : n;
+        return n > 0;
+    }
+
+    /**
+     * Resolves a token found in the stream, escaped tokens are handled by the reader itself.
+     *
+     * @param key the token, including its delimiters
+     * @return the replacement text
+     * @throws InterpolationException
+     */
+    String interpolate( String key )
+        throws InterpolationException
+    {
+        if ( interpolateWithPrefixPattern )
+        {
+            return interpolator.interpolate( key, "", recursionInterceptor );
+        }
+        if ( answerCache != null )
+        {
+            return answerCache.interpolate( interpolator, key, recursionInterceptor );
+        }
+        return interpolator.interpolate( key, recursionInterceptor );
+    }
+
+    private DelimiterMatcher getDelimiterMatcher()
+    {
+        if ( delimiterMatcher == null )
+        {
+            delimiterMatcher = new DelimiterMatcher( delimiters, useEscape ? escapeString : null );
+        }
+        return delimiterMatcher;
+    }
+
     private boolean reselectDelimiterSpec( int ch )
     {
-        for ( Iterator it = delimiters.iterator(); it.hasNext(); )
+        DelimiterSpecification spec = getDelimiterMatcher().getSpecification( ch );
+        if ( spec == null )
         {
-            DelimiterSpecification spec = (DelimiterSpecification) it.next();
-            if ( ch == spec.getBegin().charAt( 0 ) )
-            {
-                currentSpec = spec;
-                originalBeginToken = currentSpec.getBegin();
-                beginToken = useEscape ? escapeString + originalBeginToken : originalBeginToken;
-                endToken = currentSpec.getEnd();
-                
-                return true;
-            }
+            return false;
         }
-        
-        return false;
+
+        currentSpec = spec;
+        originalBeginToken = currentSpec.getBegin();
+        beginToken = useEscape ? escapeString + originalBeginToken : originalBeginToken;
+        endToken = currentSpec.getEnd();
+
+        return true;
     }
 
     public boolean isInterpolateWithPrefixPattern()
@@ -477,6 +660,10 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding
         {
             this.escapeString = escapeString;
             this.useEscape = escapeString != null && escapeString.length() >= 1;
+            if ( delimiterMatcher != null && !escapeString.equals( delimiterMatcher.getEscapeString() ) )
+            {
+                delimiterMatcher = null;
+            }
         }
     }
 
@@ -0,0 +1,293 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Worker threads copying or filtering the files of a resource directory, in the order they are submitted. Copies can
+ * be submitted while the directory is still being scanned, and the calling thread waits for each copy in turn with
+ * {@link #next()}.
+ * <p>
+ * Once stopped, no copy is started anymore and {@link #stop()} returns when the running ones are done, so that no
+ * file is written after an error has been reported.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class ParallelCopier
+{
+    private final DefaultMavenFileFilter fileFilter;
+
+    private final MavenResourcesExecution mavenResourcesExecution;
+
+    /** copies not started yet, guarded by this */
+    private final LinkedList pending = new LinkedList();
+
+    /** copies submitted and not returned by {@link #next()} yet, in submission order, guarded by this */
+    private final LinkedList unreported = new LinkedList();
+
+    private final List workers = new ArrayList();
+
+    /** guarded by this */
+    private boolean closed;
+
+    /** guarded by this */
+    private boolean stopped;
+
+    ParallelCopier( DefaultMavenFileFilter fileFilter, MavenResourcesExecution mavenResourcesExecution )
+    {
+        this.fileFilter = fileFilter;
+        this.mavenResourcesExecution = mavenResourcesExecution;
+    }
+
+    /**
+     * Start the worker threads for the parallelism of the execution.
+     */
+    void start()
+    {
+        int count = Math.max( 1, mavenResourcesExecution.getParallelism() );
+        for ( int i = 0; i < count; i++ )
+        {
+            Thread worker = new Thread( new Runnable()
+            {
+                public void run()
+                {
+                    for ( Copy copy = nextPending(); copy != null; copy = nextPending() )
+                    {
+                        copy( copy );
+                    }
+                }
+            }, "maven-filtering-" + ( i + 1 ) );
+            worker.setDaemon( true );
+            workers.add( worker );
+            worker.start();
+        }
+    }
+
+    /**
+     * Add a copy after the ones already submitted.
+     */
+    synchronized void submit( Copy copy )
+    {
+        pending.addLast( copy );
+        unreported.addLast( copy );
+        notifyAll();
+    }
+
+    /**
+     * No more copies will be submitted: the workers end once the submitted ones are done.
+     */
+    synchronized void close()
+    {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return number of copies submitted and not returned by {@link #next()} yet
+     */
+    synchronized int getUnreportedCount()
+    {
+        return unreported.size();
+    }
+
+    /**
+     * @return the oldest copy not returned yet once it is done, successfully or not, or <code>null</code> if all
+     *         the copies have been returned
+     */
+    Copy next()
+    {
+        Copy copy;
+        boolean interrupted = false;
+        synchronized ( this )
+        {
+            if ( unreported.isEmpty() )
+            {
+                return null;
+            }
+            copy = (Copy) unreported.removeFirst();
+            while ( !copy.done )
+            {
+                try
+                {
+                    wait();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+        return copy;
+    }
+
+    /**
+     * Don't start any other copy and wait for the running ones.
+     */
+    void stop()
+    {
+        synchronized ( this )
+        {
+            stopped = true;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        for ( int i = 0; i < workers.size(); i++ )
+        {
+            Thread worker = (Thread) workers.get( i );
+            while ( worker.isAlive() )
+            {
+                try
+                {
+                    worker.join();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the next copy to start, waiting for one to be submitted, or <code>null</code> once stopped or closed
+     *         with no copy left
+     */
+    private synchronized Copy nextPending()
+    {
+        while ( !stopped && pending.isEmpty() && !closed )
+        {
+            try
+            {
+                wait();
+            }
+            catch ( InterruptedException e )
+            {
+                // daemon worker, stop() is what ends it
+            }
+        }
+        if ( stopped || pending.isEmpty() )
+        {
+            return null;
+        }
+        return (Copy) pending.removeFirst();
+    }
+
+    private void copy( Copy copy )
+    {
+        try
+        {
+            copy.written = fileFilter.copyFileContent( copy.from, copy.to, copy.filtering, mavenResourcesExecution,
+                                                       copy.messages );
+        }
+        catch ( Throwable e )
+        {
+            copy.error = e;
+        }
+        synchronized ( this )
+        {
+            copy.done = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * A file to copy, and the outcome of the copy.
+     */
+    static final class Copy
+    {
+        private final File from;
+
+        private final File to;
+
+        private final boolean filtering;
+
+        /** debug messages, logged by the calling thread */
+        private final List messages = new ArrayList();
+
+        private Throwable error;
+
+        private boolean written;
+
+        private boolean done;
+
+        Copy( File from, File to, boolean filtering )
+        {
+            this.from = from;
+            this.to = to;
+            this.filtering = filtering;
+        }
+
+        File getTo()
+        {
+            return to;
+        }
+
+        List getMessages()
+        {
+            return messages;
+        }
+
+        /**
+         * @return <code>false</code> if the destination was left as is as its content would not change
+         */
+        boolean isWritten()
+        {
+            return written;
+        }
+
+        /**
+         * Throw the error of the copy on the calling thread, if any.
+         */
+        void rethrow()
+            throws MavenFilteringException
+        {
+            if ( error instanceof MavenFilteringException )
+            {
+                throw (MavenFilteringException) error;
+            }
+            if ( error instanceof RuntimeException )
+            {
+                throw (RuntimeException) error;
+            }
+            if ( error instanceof Error )
+            {
+                throw (Error) error;
+            }
+            if ( error != null )
+            {
+                throw new MavenFilteringException( error.getMessage(), error );
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Filter files loaded with {@link PropertyUtils#loadPropertyFile(File, Properties)}, shared by the builds running in
+ * the same JVM so that a filter file used by several modules or executions is read and resolved once.
+ * <p>
+ * A file is loaded again when its size or modification time changed, and the base properties its values were
+ * resolved with are part of the key.
+ * </p>
+ * <p>
+ * The filter files of a build can be read ahead by {@link #readAll(File[])}, all at the same time, before their
+ * values are resolved one after the other. The files are also cached as written, so that only the files not found in
+ * the cache or changed since are read, and a file resolved with other base properties is not read again.
+ * </p>
+ *
+ * @since 1.2
+ */
+public final class PropertyFileCache
+{
+    /** maximum number of filter files read at the same time by {@link #readAll(File[])} */
+    private static final int READ_CONCURRENCY = 8;
+
+    private static final PropertyFileCache INSTANCE =
+        new PropertyFileCache( 100, DefaultMavenFileFilter.TIMESTAMP_RESOLUTION );
+
+    private final LruCache entries;
+
+    /** canonical path to the {@link Content} of the file as written */
+    private final LruCache fileContents;
+
+    /** files modified more recently than this are not cached, in milliseconds */
+    private final long timestampResolution;
+
+    private long hits;
+
+    private long misses;
+
+    PropertyFileCache( int maxEntries, long timestampResolution )
+    {
+        this.entries = new LruCache( maxEntries );
+        this.fileContents = new LruCache( maxEntries );
+        this.timestampResolution = timestampResolution;
+    }
+
+    /**
+     * @return the cache used by {@link DefaultMavenFileFilter}
+     */
+    public static PropertyFileCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param file the property file
+     * @param baseProps the properties to resolve the values of the file with, can be <code>null</code>
+     * @return the properties of the file with their values resolved, as returned by
+     *         {@link PropertyUtils#loadPropertyFile(File, Properties)}
+     * @throws IOException if the file does not exist or can't be read
+     */
+    Properties load( File file, Properties baseProps )
+        throws IOException
+    {
+        return load( file, baseProps, null );
+    }
+
+    /**
+     * @param file the property file
+     * @param baseProps the properties to resolve the values of the file with, can be <code>null</code>
+     * @param content the file as read by {@link #readAll(File[])}, can be <code>null</code> to read it when it is
+     *            not found in the cache either
+     * @return the properties of the file with their values resolved, as returned by
+     *         {@link PropertyUtils#loadPropertyFile(File, Properties)}
+     * @throws IOException if the file does not exist or can't be read
+     */
+    Properties load( File file, Properties baseProps, Content content )
+        throws IOException
+    {
+        Properties base = baseProps == null ? new Properties() : baseProps;
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String path = file.getCanonicalPath();
+        String key = path + '|' + base.hashCode();
+
+        Entry entry = (Entry) entries.get( key );
+        if ( entry != null && entry.length == length && entry.lastModified == lastModified
+            && entry.baseProps.equals( base ) )
+        {
+            synchronized ( this )
+            {
+                hits++;
+            }
+            return copy( entry.properties );
+        }
+        synchronized ( this )
+        {
+            misses++;
+        }
+
+        if ( content == null || !content.isCurrent( length, lastModified ) )
+        {
+            // not read ahead, or changed since
+            content = getContent( path, length, lastModified );
+        }
+        if ( content == null )
+        {
+            content = new Content( file );
+            content.read();
+            putContent( path, content );
+        }
+        content.rethrow();
+        Properties properties = PropertyUtils.resolvePropertyFile( copy( content.properties ), base );
+
+        // a file changed again within the timestamp resolution could keep the same length and modification time
+        if ( System.currentTimeMillis() - lastModified > timestampResolution )
+        {
+            entries.put( key, new Entry( length, lastModified, copy( base ), copy( properties ) ) );
+        }
+        else
+        {
+            entries.remove( key );
+        }
+        return properties;
+    }
+
+    /**
+     * Read the filter files not found in the cache or changed since without resolving their values, with a thread
+     * per file up to {@link #READ_CONCURRENCY} threads.
+     *
+     * @param files the filter files
+     * @return the content of each file, in the same order, to be given to {@link #load(File, Properties, Content)}
+     */
+    Content[] readAll( File[] files )
+    {
+        Content[] contents = new Content[files.length];
+        String[] paths = new String[files.length];
+        boolean[] read = new boolean[files.length];
+        List toRead = new ArrayList( files.length );
+        for ( int i = 0; i < files.length; i++ )
+        {
+            try
+            {
+                paths[i] = files[i].getCanonicalPath();
+                contents[i] = getContent( paths[i], files[i].length(), files[i].lastModified() );
+            }
+            catch ( IOException e )
+            {
+                // read below, the error is thrown by load
+            }
+            if ( contents[i] == null )
+            {
+                contents[i] = new Content( files[i] );
+                toRead.add( contents[i] );
+                read[i] = true;
+            }
+        }
+
+        read( (Content[]) toRead.toArray( new Content[toRead.size()] ) );
+        for ( int i = 0; i < files.length; i++ )
+        {
+            if ( read[i] && paths[i] != null )
+            {
+                putContent( paths[i], contents[i] );
+            }
+        }
+        return contents;
+    }
+
+    private static void read( final Content[] contents )
+    {
+        if ( contents.length < 2 )
+        {
+            for ( int i = 0; i < contents.length; i++ )
+            {
+                contents[i].read();
+            }
+            return;
+        }
+
+        final int[] next = new int[1];
+        Thread[] readers = new Thread[Math.min( READ_CONCURRENCY, contents.length )];
+        for ( int i = 0; i < readers.length; i++ )
+        {
+            readers[i] = new Thread( new Runnable()
+            {
+                public void run()
+                {
+                    while ( true )
+                    {
+                        int index;
+                        synchronized ( next )
+                        {
+                            index = next[0]++;
+                        }
+                        if ( index >= contents.length )
+                        {
+                            return;
+                        }
+                        contents[index].read();
+                    }
+                }
+            }, "maven-filtering-filters-" + ( i + 1 ) );
+            readers[i].setDaemon( true );
+            readers[i].start();
+        }
+
+        boolean interrupted = false;
+        for ( int i = 0; i < readers.length; i++ )
+        {
+            while ( readers[i].isAlive() )
+            {
+                try
+                {
+                    readers[i].join();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the cached content of a file, or <code>null</code> if it is not cached or changed since
+     */
+    private Content getContent( String path, long length, long lastModified )
+    {
+        Content content = (Content) fileContents.get( path );
+        return content != null && content.isCurrent( length, lastModified ) ? content : null;
+    }
+
+    private void putContent( String path, Content content )
+    {
+        // same as the entries: a file changed again within the timestamp resolution could keep the same length and
+        // modification time
+        if ( content.error == null && System.currentTimeMillis() - content.lastModified > timestampResolution )
+        {
+            fileContents.put( path, content );
+        }
+        else
+        {
+            fileContents.remove( path );
+        }
+    }
+
+    /**
+     * @return number of files found in the cache
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return number of files loaded
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Forget all the files and reset the counters.
+     */
+    public void clear()
+    {
+        entries.clear();
+        fileContents.clear();
+        synchronized ( this )
+        {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    private static Properties copy( Properties properties )
+    {
+        Properties copy = new Properties();
+        copy.putAll( properties );
+        return copy;
+    }
+
+    /**
+     * The properties of a filter file as written, or the error reading it, with the size and modification time the
+     * file had before it was read.
+     */
+    static final class Content
+    {
+        private final File file;
+
+        private long length;
+
+        private long lastModified;
+
+        private Properties properties;
+
+        private Throwable error;
+
+        Content( File file )
+        {
+            this.file = file;
+        }
+
+        void read()
+        {
+            length = file.length();
+            lastModified = file.lastModified();
+            try
+            {
+                properties = PropertyUtils.readPropertyFile( file );
+            }
+            catch ( Throwable e )
+            {
+                error = e;
+            }
+        }
+
+        boolean isCurrent( long length, long lastModified )
+        {
+            return this.length == length && this.lastModified == lastModified;
+        }
+
+        /**
+         * Throw the error of the read on the calling thread, if any.
+         */
+        void rethrow()
+            throws IOException
+        {
+            if ( error instanceof IOException )
+            {
+                throw (IOException) error;
+            }
+            if ( error instanceof RuntimeException )
+            {
+                throw (RuntimeException) error;
+            }
+            if ( error instanceof Error )
+            {
+                throw (Error) error;
+            }
+        }
+    }
+
+    private static final class Entry
+    {
+        final long length;
+
+        final long lastModified;
+
+        final Properties baseProps;
+
+        final Properties properties;
+
+        Entry( long length, long lastModified, Properties baseProps, Properties properties )
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.baseProps = baseProps;
+            this.properties = properties;
+        }
+    }
+}
@@ -26,8 +26,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 
 /**
@@ -59,6 +68,20 @@ public final class PropertyUtils
      */
     public static Properties loadPropertyFile( File propFile, Properties baseProps )
         throws IOException
+    {
+        return resolvePropertyFile( readPropertyFile( propFile ), baseProps );
+    }
+
+    /**
+     * Reads a property file without resolving its variables.
+     *
+     * @param propFile The property file to load.
+     * @return Properties object containing the properties in the file as they are written.
+     * @throws IOException if profile does not exist, or cannot be read.
+     * @since 1.2
+     */
+    static Properties readPropertyFile( File propFile )
+        throws IOException
     {
         if ( !propFile.exists() )
         {
@@ -75,7 +98,20 @@ public final class PropertyUtils
         {
             IOUtil.close( inStream );
         }
+        return fileProps;
+    }
 
+    /**
+     * Resolves the variables of properties read by {@link #readPropertyFile(File)}, as
+     * {@link #loadPropertyFile(File, Properties)} does.
+     *
+     * @param fileProps The properties of the file, their values are replaced by the resolved ones.
+     * @param baseProps Properties containing the initial values to substitute into the properties file.
+     * @return <code>fileProps</code>
+     * @since 1.2
+     */
+    static Properties resolvePropertyFile( final Properties fileProps, Properties baseProps )
+    {
         final Properties combinedProps = new Properties();
         combinedProps.putAll( baseProps == null ? new Properties() : baseProps );
         combinedProps.putAll( fileProps );
@@ -89,10 +125,12 @@ public final class PropertyUtils
         // as can be verified by replacing the implementation of #loadPropertyFile(File, boolean, boolean)
         // with the commented variant I have provided that reuses this method.
 
+        final Resolver resolver = new Resolver( combinedProps );
+        resolver.prepare( fileProps.keySet() );
         for ( Iterator iter = fileProps.keySet().iterator(); iter.hasNext(); )
         {
             final String k = (String) iter.next();
-            final String propValue = getPropertyValue( k, combinedProps );
+            final String propValue = resolver.resolve( k );
             fileProps.setProperty( k, propValue );
         }
 
@@ -142,69 +180,197 @@ public final class PropertyUtils
 
 
     /**
-     * Retrieves a property value, replacing values like ${token}
+     * Retrieves property values, replacing values like ${token}
      * using the Properties to look them up.
      *
      * It will leave unresolved properties alone, trying for System
      * properties, and implements reparsing (in the case that
      * the value of a property contains a key), and will
      * not loop endlessly on a pair like
-     * test = ${test}.
+     * test = ${test}, or on longer cycles.
      *
-     * @param k
-     * @param p
-     * @return The filtered property value.
+     * The value of each referenced key is resolved once and reused,
+     * unless it depends on the key being resolved: when it is part of
+     * a cycle, or when a value met while resolving it is a key name.
      */
-    private static String getPropertyValue( String k, Properties p )
+    private static final class Resolver
     {
-        // This can also be done using InterpolationFilterReader,
-        // but it requires reparsing the file over and over until
-        // it doesn't change.
+        private final Properties properties;
+
+        /** key to value, for the values which are the same whatever the key being resolved */
+        private final Map resolved = new HashMap();
 
-        String v = p.getProperty( k );
-        String ret = "";
-        int idx, idx2;
+        /** keys being resolved, to detect cycles */
+        private final Set resolving = new HashSet();
 
-        while ( ( idx = v.indexOf( "${" ) ) >= 0 )
+        /** if the value being resolved depends on the key being resolved */
+        private boolean contextual;
+
+        Resolver( Properties properties )
         {
-            // append prefix to result
-            ret += v.substring( 0, idx );
+            this.properties = properties;
+        }
 
-            // strip prefix from original
-            v = v.substring( idx + 2 );
+        /**
+         * Resolve the keys referenced by these keys first, deepest first, so that resolving a key only
+         * recurses into values which are already known and deep chains don't exhaust the stack.
+         */
+        void prepare( Collection keys )
+        {
+            Set visited = new HashSet();
+            LinkedList order = new LinkedList();
+            LinkedList stack = new LinkedList();
+            for ( Iterator it = keys.iterator(); it.hasNext(); )
+            {
+                String key = (String) it.next();
+                if ( visited.add( key ) )
+                {
+                    stack.addLast( new Object[] { key, getReferences( key ).iterator() } );
+                }
+                while ( !stack.isEmpty() )
+                {
+                    Object[] top = (Object[]) stack.getLast();
+                    Iterator references = (Iterator) top[1];
+                    if ( references.hasNext() )
+                    {
+                        String reference = (String) references.next();
+                        if ( visited.add( reference ) )
+                        {
+                            stack.addLast( new Object[] { reference, getReferences( reference ).iterator() } );
+                        }
+                    }
+                    else
+                    {
+                        stack.removeLast();
+                        order.addLast( top[0] );
+                    }
+                }
+            }
+            for ( Iterator it = order.iterator(); it.hasNext(); )
+            {
+                resolve( (String) it.next() );
+            }
+        }
 
-            // if no matching } then bail
-            if ( ( idx2 = v.indexOf( '}' ) ) < 0 )
+        /**
+         * @return the value of the key with its references resolved, <code>null</code> if the key has no value
+         */
+        String resolve( String k )
+        {
+            String value = getValue( k );
+            if ( value == null )
             {
-                break;
+                return null;
+            }
+            String cached = (String) resolved.get( k );
+            if ( cached != null )
+            {
+                return cached;
             }
 
-            // strip out the key and resolve it
-            // resolve the key/value for the ${statement}
-            String nk = v.substring( 0, idx2 );
-            v = v.substring( idx2 + 1 );
-            String nv = p.getProperty( nk );
+            // another key being resolved would leave a reference to this one alone
+            contextual = properties.containsKey( value );
+            resolving.add( k );
+            StringBuffer ret = new StringBuffer( value.length() );
+            expand( value, k, ret );
+            resolving.remove( k );
+            if ( !contextual )
+            {
+                resolved.put( k, ret.toString() );
+            }
+            return ret.toString();
+        }
+
+        private void expand( String v, String k, StringBuffer ret )
+        {
+            int pos = 0;
+            int idx;
+            while ( ( idx = v.indexOf( "${", pos ) ) >= 0 )
+            {
+                // append prefix to result
+                ret.append( v.substring( pos, idx ) );
+
+                // if no matching } then bail
+                int idx2 = v.indexOf( '}', idx + 2 );
+                if ( idx2 < 0 )
+                {
+                    pos = idx + 2;
+                    break;
+                }
+
+                String nk = v.substring( idx + 2, idx2 );
+                pos = idx2 + 1;
+                String nv = getValue( nk );
+
+                // if the key cannot be resolved, or would resolve the key being resolved,
+                // leave it alone
+                if ( nv == null )
+                {
+                    ret.append( "${" ).append( nk ).append( '}' );
+                }
+                else if ( nv.equals( k ) || k.equals( nk ) || resolving.contains( nk ) )
+                {
+                    contextual = true;
+                    ret.append( "${" ).append( nk ).append( '}' );
+                }
+                else
+                {
+                    appendResolved( nk, nv, k, ret );
+                }
+            }
+            ret.append( v.substring( pos ) );
+        }
+
+        private void appendResolved( String nk, String nv, String k, StringBuffer ret )
+        {
+            String cached = (String) resolved.get( nk );
+            if ( cached != null )
+            {
+                ret.append( cached );
+                return;
+            }
+
+            boolean outerContextual = contextual;
+            contextual = properties.containsKey( nv );
+            int start = ret.length();
+            resolving.add( nk );
+            expand( nv, k, ret );
+            resolving.remove( nk );
+            if ( !contextual )
+            {
+                resolved.put( nk, ret.substring( start ) );
+            }
+            contextual |= outerContextual;
+        }
+
+        private String getValue( String key )
+        {
+            String value = properties.getProperty( key );
 
             // try global environment..
-            if ( nv == null && !StringUtils.isEmpty( nk ) )
+            if ( value == null && !StringUtils.isEmpty( key ) )
             {
-                nv = System.getProperty( nk );
+                value = System.getProperty( key );
             }
+            return value;
+        }
 
-            // if the key cannot be resolved,
-            // leave it alone ( and don't parse again )
-            // else prefix the original string with the
-            // resolved property ( so it can be parsed further )
-            // taking recursion into account.
-            if ( nv == null || nv.equals( k ) || k.equals( nk ) )
+        private List getReferences( String key )
+        {
+            String value = getValue( key );
+            if ( value == null )
             {
-                ret += "${" + nk + "}";
+                return Collections.EMPTY_LIST;
             }
-            else
+            List references = new ArrayList();
+            int idx = 0;
+            int idx2;
+            while ( ( idx = value.indexOf( "${", idx ) ) >= 0 && ( idx2 = value.indexOf( '}', idx + 2 ) ) >= 0 )
             {
-                v = nv + v;
+                references.add( value.substring( idx + 2, idx2 ) );
+                idx = idx2 + 1;
             }
+            return references;
         }
-        return ret + v;
     }
 }
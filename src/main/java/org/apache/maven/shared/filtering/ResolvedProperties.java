@@ -0,0 +1,177 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.Interpolator;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
+
+/**
+ * Immutable values of the filter properties, resolved once with the interpolator of a filter wrapper so that the
+ * expressions referencing a property don't go through the interpolator at all.
+ * <p>
+ * Values are stored for each delimiter form of the expression, <code>${key}</code> and <code>@key@</code> for the
+ * default delimiters, in an open addressing table: a lookup is a single probe sequence without locking. Properties
+ * whose value can't be resolved, such as the ones in a cycle, are left out and go through the interpolator as before.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class ResolvedProperties
+{
+    static final ResolvedProperties EMPTY = new ResolvedProperties( new ArrayList(), new ArrayList() );
+
+    private final String[] expressions;
+
+    private final String[] values;
+
+    private final int mask;
+
+    private ResolvedProperties( List expressions, List values )
+    {
+        int capacity = 2;
+        while ( capacity < expressions.size() * 2 )
+        {
+            capacity <<= 1;
+        }
+        this.expressions = new String[capacity];
+        this.values = new String[capacity];
+        this.mask = capacity - 1;
+
+        for ( int i = 0; i < expressions.size(); i++ )
+        {
+            String expression = (String) expressions.get( i );
+            int index = expression.hashCode() & mask;
+            while ( this.expressions[index] != null && !this.expressions[index].equals( expression ) )
+            {
+                index = ( index + 1 ) & mask;
+            }
+            this.expressions[index] = expression;
+            this.values[index] = (String) values.get( i );
+        }
+    }
+
+    /**
+     * @param properties the filter properties
+     * @param interpolator the interpolator of the filter wrapper
+     * @param recursionInterceptor the recursion interceptor of the filter wrapper, the properties resolved after a
+     *            failure may be left out as it is not reset by the interpolator
+     * @param specifications {@link List} of {@link DelimiterSpecification}, the first one is used to resolve the
+     *            values
+     * @return the resolved values
+     */
+    static ResolvedProperties resolve( Properties properties, Interpolator interpolator,
+                                       RecursionInterceptor recursionInterceptor, List specifications )
+    {
+        if ( properties.isEmpty() || specifications.isEmpty() )
+        {
+            return EMPTY;
+        }
+
+        DelimiterSpecification first = (DelimiterSpecification) specifications.get( 0 );
+        List expressions = new ArrayList();
+        List values = new ArrayList();
+        for ( Iterator it = properties.keySet().iterator(); it.hasNext(); )
+        {
+            Object key = it.next();
+            if ( !( key instanceof String ) || properties.getProperty( (String) key ) == null )
+            {
+                continue;
+            }
+            String value = resolve( (String) key, first, interpolator, recursionInterceptor );
+            if ( value == null )
+            {
+                continue;
+            }
+            for ( Iterator specs = specifications.iterator(); specs.hasNext(); )
+            {
+                DelimiterSpecification spec = (DelimiterSpecification) specs.next();
+                if ( ( (String) key ).indexOf( spec.getEnd() ) < 0 )
+                {
+                    expressions.add( spec.getBegin() + key + spec.getEnd() );
+                    values.add( value );
+                }
+            }
+        }
+        return new ResolvedProperties( expressions, values );
+    }
+
+    private static String resolve( String key, DelimiterSpecification spec, Interpolator interpolator,
+                                   RecursionInterceptor recursionInterceptor )
+    {
+        if ( key.length() == 0 || key.indexOf( spec.getEnd() ) >= 0 )
+        {
+            return null;
+        }
+        String expression = spec.getBegin() + key + spec.getEnd();
+        try
+        {
+            String value = interpolator.interpolate( expression, recursionInterceptor );
+            // unresolved expressions are given back as is
+            return expression.equals( value ) ? null : value;
+        }
+        catch ( InterpolationException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @param expression an expression including its delimiters
+     * @return the value, <code>null</code> if the expression is not a property known here
+     */
+    String get( String expression )
+    {
+        int index = expression.hashCode() & mask;
+        String candidate;
+        while ( ( candidate = expressions[index] ) != null )
+        {
+            if ( candidate.equals( expression ) )
+            {
+                return values[index];
+            }
+            index = ( index + 1 ) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @return number of expressions known
+     */
+    int size()
+    {
+        int size = 0;
+        for ( int i = 0; i < expressions.length; i++ )
+        {
+            if ( expressions[i] != null )
+            {
+                size++;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,387 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.plexus.util.AbstractScanner;
+
+/**
+ * Walks a resource directory and reports each included file and directory as soon as it is found, so that they can
+ * be copied while the rest of the directory is being walked, without holding the whole list in memory.
+ * <p>
+ * Includes and excludes follow the rules of {@link org.codehaus.plexus.util.DirectoryScanner}, and the files and
+ * directories are reported in the order it would list them. The patterns are compiled once into their path
+ * segments, and each directory keeps the positions reached in them by its path, so that a name is only matched
+ * against the next segments. A directory whose content can't be included, or is excluded as a whole by a pattern
+ * ending with <code>**</code> as <code>.svn/**</code> in the default excludes, is not walked. As for
+ * DirectoryScanner, excluding a directory alone doesn't exclude its content.
+ * </p>
+ * <p>
+ * The directories are listed through a {@link DirectoryListingCache}, so that the resource directories walked by
+ * several executions are read from the file system once while they don't change.
+ * </p>
+ *
+ * @since 1.2
+ */
+final class ResourceWalker
+{
+    /**
+     * Receives the included files and directories.
+     */
+    interface Visitor
+    {
+        /**
+         * @param name path of the directory relative to the walked directory, empty for the walked directory
+         */
+        void visitDirectory( String name )
+            throws MavenFilteringException;
+
+        /**
+         * @param name path of the file relative to the walked directory
+         */
+        void visitFile( String name )
+            throws MavenFilteringException;
+    }
+
+    private static final String ANY_DIRECTORIES = "**";
+
+    private final File basedir;
+
+    private final DirectoryListingCache listings;
+
+    private final Patterns includes;
+
+    private final Patterns excludes;
+
+    /**
+     * @param basedir the directory to walk
+     * @param includes include patterns, <code>null</code> or empty to include everything
+     * @param excludes exclude patterns, can be <code>null</code>
+     * @param defaultExcludes if the {@link AbstractScanner#DEFAULTEXCLUDES} are excluded too
+     */
+    ResourceWalker( File basedir, String[] includes, String[] excludes, boolean defaultExcludes )
+    {
+        this( basedir, includes, excludes, defaultExcludes, DirectoryListingCache.getInstance() );
+    }
+
+    /**
+     * @param listings the cache of the directory listings
+     */
+    ResourceWalker( File basedir, String[] includes, String[] excludes, boolean defaultExcludes,
+                    DirectoryListingCache listings )
+    {
+        this.basedir = basedir;
+        this.listings = listings;
+        this.includes =
+            new Patterns( includes == null || includes.length == 0 ? new String[] { ANY_DIRECTORIES } : includes,
+                          null );
+        this.excludes =
+            new Patterns( excludes == null ? new String[0] : excludes,
+                          defaultExcludes ? AbstractScanner.DEFAULTEXCLUDES : null );
+    }
+
+    /**
+     * Walk the directory, calling the visitor on the calling thread.
+     */
+    void walk( Visitor visitor )
+        throws MavenFilteringException
+    {
+        Positions included = includes.start();
+        Positions excluded = excludes.start();
+        if ( included.matches && !excluded.matches )
+        {
+            visitor.visitDirectory( "" );
+        }
+        if ( !included.isEmpty() && !excluded.matchesAll )
+        {
+            walk( basedir, "", included, excluded, visitor );
+        }
+    }
+
+    private void walk( File directory, String prefix, Positions parentIncluded, Positions parentExcluded,
+                       Visitor visitor )
+        throws MavenFilteringException
+    {
+        DirectoryListingCache.Listing listing = listings.list( directory );
+        if ( listing == null )
+        {
+            // not a directory any more, or not readable
+            return;
+        }
+        String[] children = listing.names;
+        for ( int i = 0; i < children.length; i++ )
+        {
+            Positions included = parentIncluded.next( children[i] );
+            Positions excluded = parentExcluded.next( children[i] );
+            if ( included.isEmpty() || excluded.matchesAll )
+            {
+                // neither this file nor anything below it can be reported
+                continue;
+            }
+            String name = prefix + children[i];
+            if ( listing.kinds[i] == DirectoryListingCache.Listing.DIRECTORY )
+            {
+                if ( included.matches && !excluded.matches )
+                {
+                    visitor.visitDirectory( name );
+                }
+                walk( new File( directory, children[i] ), name + File.separator, included, excluded, visitor );
+            }
+            else if ( included.matches && !excluded.matches
+                && listing.kinds[i] == DirectoryListingCache.Listing.FILE )
+            {
+                visitor.visitFile( name );
+            }
+        }
+    }
+
+    /**
+     * Patterns split into their path segments.
+     */
+    private static final class Patterns
+    {
+        /** segments of each pattern */
+        final String[][] segments;
+
+        /** if each segment contains <code>*</code> or <code>?</code> */
+        final boolean[][] wildcards;
+
+        /**
+         * for each pattern and position, if there are remaining segments and they are all <code>**</code>: a pattern
+         * fully matched only matches that path, not what is below it
+         */
+        final boolean[][] matchesAll;
+
+        /**
+         * @param patterns patterns using any separator
+         * @param morePatterns patterns added after them, can be <code>null</code>
+         */
+        Patterns( String[] patterns, String[] morePatterns )
+        {
+            int moreLength = morePatterns == null ? 0 : morePatterns.length;
+            segments = new String[patterns.length + moreLength][];
+            wildcards = new boolean[segments.length][];
+            matchesAll = new boolean[segments.length][];
+            for ( int i = 0; i < segments.length; i++ )
+            {
+                String pattern = i < patterns.length ? patterns[i] : morePatterns[i - patterns.length];
+                pattern = pattern.trim().replace( '\\', '/' );
+                if ( pattern.endsWith( "/" ) )
+                {
+                    // as DirectoryScanner does, everything below a directory
+                    pattern += ANY_DIRECTORIES;
+                }
+                segments[i] = split( pattern );
+                wildcards[i] = new boolean[segments[i].length];
+                matchesAll[i] = new boolean[segments[i].length + 1];
+                for ( int j = segments[i].length - 1; j >= 0; j-- )
+                {
+                    String segment = segments[i][j];
+                    wildcards[i][j] = segment.indexOf( '*' ) >= 0 || segment.indexOf( '?' ) >= 0;
+                    matchesAll[i][j] = ANY_DIRECTORIES.equals( segment )
+                        && ( j + 1 == segments[i].length || matchesAll[i][j + 1] );
+                }
+            }
+        }
+
+        /**
+         * @return the positions of the empty path: the start of each pattern
+         */
+        Positions start()
+        {
+            Positions start = new Positions( this, segments.length );
+            for ( int i = 0; i < segments.length; i++ )
+            {
+                start.add( i, 0 );
+            }
+            return start;
+        }
+
+        /**
+         * Split a pattern on its separators, ignoring empty segments except a leading one: as for DirectoryScanner,
+         * an absolute pattern can't match a relative path.
+         */
+        private static String[] split( String pattern )
+        {
+            List list = new ArrayList();
+            int start = 0;
+            while ( start <= pattern.length() )
+            {
+                int end = pattern.indexOf( '/', start );
+                if ( end < 0 )
+                {
+                    end = pattern.length();
+                }
+                if ( end > start || start == 0 )
+                {
+                    list.add( pattern.substring( start, end ) );
+                }
+                start = end + 1;
+            }
+            return (String[]) list.toArray( new String[list.size()] );
+        }
+    }
+
+    /**
+     * Positions reached in the patterns by a path: for each one, the pattern and the index of the next segment to
+     * match, after the <code>**</code> segments which can match nothing.
+     */
+    private static final class Positions
+    {
+        private final Patterns patterns;
+
+        private int[] pattern;
+
+        private int[] segment;
+
+        private int size;
+
+        /** if a pattern matches the path */
+        boolean matches;
+
+        /** if a pattern matches everything below the path */
+        boolean matchesAll;
+
+        Positions( Patterns patterns, int capacity )
+        {
+            this.patterns = patterns;
+            this.pattern = new int[Math.max( 1, capacity )];
+            this.segment = new int[pattern.length];
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        /**
+         * @return the positions of the path followed by a name
+         */
+        Positions next( String name )
+        {
+            Positions next = new Positions( patterns, size );
+            for ( int i = 0; i < size; i++ )
+            {
+                int p = pattern[i];
+                int s = segment[i];
+                String[] segments = patterns.segments[p];
+                if ( s == segments.length )
+                {
+                    continue;
+                }
+                if ( ANY_DIRECTORIES.equals( segments[s] ) )
+                {
+                    // one more directory matched by the same segment
+                    next.add( p, s );
+                }
+                else if ( patterns.wildcards[p][s] ? matches( segments[s], name ) : segments[s].equals( name ) )
+                {
+                    next.add( p, s + 1 );
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Add a position, and the positions after the <code>**</code> segments following it.
+         */
+        void add( int p, int s )
+        {
+            String[] segments = patterns.segments[p];
+            while ( true )
+            {
+                addOne( p, s );
+                if ( s == segments.length || !ANY_DIRECTORIES.equals( segments[s] ) )
+                {
+                    break;
+                }
+                s++;
+            }
+        }
+
+        private void addOne( int p, int s )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                if ( pattern[i] == p && segment[i] == s )
+                {
+                    return;
+                }
+            }
+            if ( size == pattern.length )
+            {
+                int[] newPattern = new int[size * 2];
+                int[] newSegment = new int[size * 2];
+                System.arraycopy( pattern, 0, newPattern, 0, size );
+                System.arraycopy( segment, 0, newSegment, 0, size );
+                pattern = newPattern;
+                segment = newSegment;
+            }
+            pattern[size] = p;
+            segment[size] = s;
+            size++;
+            matches |= s == patterns.segments[p].length;
+            matchesAll |= patterns.matchesAll[p][s];
+        }
+    }
+
+    /**
+     * Match a name against a segment containing <code>*</code> or <code>?</code>, case sensitive.
+     */
+    static boolean matches( String pattern, String name )
+    {
+        // position after the last star, and the name position it was tried with, to backtrack
+        int p = 0;
+        int n = 0;
+        int star = -1;
+        int starName = 0;
+        while ( n < name.length() )
+        {
+            char ch = p < pattern.length() ? pattern.charAt( p ) : 0;
+            if ( ch == '*' )
+            {
+                star = ++p;
+                starName = n;
+            }
+            else if ( p < pattern.length() && ( ch == '?' || ch == name.charAt( n ) ) )
+            {
+                p++;
+                n++;
+            }
+            else if ( star >= 0 )
+            {
+                p = star;
+                n = ++starName;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        while ( p < pattern.length() && pattern.charAt( p ) == '*' )
+        {
+            p++;
+        }
+        return p == pattern.length();
+    }
+}
@@ -0,0 +1,67 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+import org.codehaus.plexus.PlexusTestCase;
+
+/**
+ * @since 1.2
+ */
+public class BinaryContentDetectorTest
+    extends PlexusTestCase
+{
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    public void testText()
+        throws Exception
+    {
+        assertFalse( BinaryContentDetector.isBinary( "version=${project.version}\n".getBytes( "UTF-8" ), UTF_8 ) );
+        assertFalse( BinaryContentDetector.isBinary( "caf\u00e9".getBytes( "UTF-8" ), UTF_8 ) );
+        assertFalse( BinaryContentDetector.isBinary( new byte[0], UTF_8 ) );
+        // a character cut by the end of the sniffed bytes
+        assertFalse( BinaryContentDetector.isBinary( new byte[] { 'a', (byte) 0xC3 }, UTF_8 ) );
+        assertFalse( BinaryContentDetector.isBinary( "key=value".getBytes( "UTF-16" ),
+                                                     Charset.forName( "UTF-16" ) ) );
+    }
+
+    public void testBinary()
+        throws Exception
+    {
+        assertTrue( BinaryContentDetector.isBinary( new byte[] { 'P', 'K', 3, 4, 'a' }, UTF_8 ) );
+        assertTrue( BinaryContentDetector.isBinary( new byte[] { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA,
+            (byte) 0xBE }, UTF_8 ) );
+        assertTrue( BinaryContentDetector.isBinary( "%PDF-1.4".getBytes( "UTF-8" ), null ) );
+        assertTrue( BinaryContentDetector.isBinary( new byte[] { 'a', 0, 'b' }, UTF_8 ) );
+        assertTrue( BinaryContentDetector.isBinary( new byte[] { 'a', (byte) 0xFF, 'b' }, UTF_8 ) );
+        assertFalse( BinaryContentDetector.isBinary( new byte[] { 'a', (byte) 0xFF, 'b' },
+                                                     Charset.forName( "ISO-8859-1" ) ) );
+    }
+
+    public void testFile()
+        throws Exception
+    {
+        File units = new File( getBasedir(), "src/test/units-files/maven-resources-filtering" );
+        assertTrue( BinaryContentDetector.isBinary( new File( units, "happy_duke.gif" ), "UTF-8" ) );
+        assertFalse( BinaryContentDetector.isBinary( new File( units, "includefile.txt" ), "UTF-8" ) );
+    }
+}
@@ -0,0 +1,85 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import org.apache.maven.model.Build;
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.interpolation.reflection.ReflectionValueExtractor;
+
+/**
+ * @since 1.2
+ */
+public class CompiledObjectValueSourceTest
+    extends PlexusTestCase
+{
+    private StubMavenProject newProject()
+    {
+        StubMavenProject mavenProject = new StubMavenProject( new File( getBasedir() ) );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setArtifactId( "foo" );
+        mavenProject.setName( "test project" );
+        mavenProject.addProperty( "foo", "bar" );
+        Build build = new Build();
+        build.setFinalName( "foo-1.0" );
+        build.setDirectory( "target" );
+        mavenProject.getModel().setBuild( build );
+        return mavenProject;
+    }
+
+    public void testSameValuesAsReflection()
+        throws Exception
+    {
+        StubMavenProject mavenProject = newProject();
+        CompiledObjectValueSource valueSource = new CompiledObjectValueSource( mavenProject );
+
+        String[] expressions = { "version", "groupId", "artifactId", "name", "build.finalName", "build.directory",
+            "basedir", "properties", "properties(foo)", "description", "build.missing", "missing.property" };
+        for ( int i = 0; i < expressions.length; i++ )
+        {
+            Object expected = ReflectionValueExtractor.evaluate( expressions[i], mavenProject, false );
+            // twice, the second time through the compiled getters
+            assertEquals( expressions[i], expected, valueSource.getValue( expressions[i] ) );
+            assertEquals( expressions[i], expected, valueSource.getValue( expressions[i] ) );
+        }
+    }
+
+    public void testSameExpressionOnOtherClasses()
+    {
+        StubMavenProject mavenProject = newProject();
+        assertEquals( "foo-1.0", new CompiledObjectValueSource( mavenProject ).getValue( "build.finalName" ) );
+
+        // the getter cached by the first step is the one of StubMavenProject
+        assertEquals( "foo-1.0", new CompiledObjectValueSource( mavenProject.getModel() ).getValue( "build.finalName" ) );
+        assertNull( new CompiledObjectValueSource( "foo" ).getValue( "build.finalName" ) );
+        assertEquals( "foo-1.0", new CompiledObjectValueSource( mavenProject ).getValue( "build.finalName" ) );
+    }
+
+    public void testEmptyExpression()
+    {
+        // @@ is left as is, not replaced by the root object
+        CompiledObjectValueSource valueSource = new CompiledObjectValueSource( newProject() );
+        assertNull( valueSource.getValue( "" ) );
+        assertNull( valueSource.getValue( " " ) );
+        assertNull( valueSource.getValue( null ) );
+    }
+}
@@ -0,0 +1,151 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
+import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
+import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
+
+/**
+ * @since 1.2
+ */
+public class CompiledTemplateTest
+    extends PlexusTestCase
+{
+    private LinkedHashSet delimiters;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        delimiters = new LinkedHashSet();
+        delimiters.add( "${*}" );
+        delimiters.add( "@" );
+    }
+
+    private MultiDelimiterStringSearchInterpolator newInterpolator()
+    {
+        Properties properties = new Properties();
+        properties.setProperty( "a", "AA" );
+        properties.setProperty( "b.c", "BC" );
+        properties.setProperty( "r", "${a}-x" );
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+        interpolator.setDelimiterSpecs( delimiters );
+        interpolator.addValueSource( new PropertiesBasedValueSource( properties ) );
+        interpolator.setEscapeString( "\\" );
+        return interpolator;
+    }
+
+    private String filterWithReader( String text, boolean multiLine )
+        throws Exception
+    {
+        MultiDelimiterInterpolatorFilterReaderLineEnding reader =
+            new MultiDelimiterInterpolatorFilterReaderLineEnding( new StringReader( text ), newInterpolator(),
+                                                                  multiLine );
+        reader.setDelimiterSpecs( delimiters );
+        reader.setEscapeString( "\\" );
+        reader.setInterpolateWithPrefixPattern( false );
+        reader.setRecursionInterceptor( new SimpleRecursionInterceptor() );
+
+        StringWriter writer = new StringWriter();
+        int ch;
+        while ( ( ch = reader.read() ) != -1 )
+        {
+            writer.write( ch );
+        }
+        return writer.toString();
+    }
+
+    private String filterWithTemplate( String text, boolean multiLine )
+        throws Exception
+    {
+        CompiledTemplate template =
+            CompiledTemplate.compile( new StringReader( text ), new DelimiterMatcher( delimiters, "\\" ), multiLine );
+        StringWriter writer = new StringWriter();
+        template.render( writer, newInterpolator(), new SimpleRecursionInterceptor(), null );
+        return writer.toString();
+    }
+
+    public void testSameOutputAsReader()
+        throws Exception
+    {
+        String[] texts = {
+            "x ${a} y @b.c@ z \\${a} ${unk} @ foo\n@a@ ${r} ${a",
+            "${a}${a}@@a@\n${\na}",
+            "plain",
+            "email me@host.com and @a@" };
+        for ( int i = 0; i < texts.length; i++ )
+        {
+            assertEquals( filterWithReader( texts[i], false ), filterWithTemplate( texts[i], false ) );
+            assertEquals( filterWithReader( texts[i], true ), filterWithTemplate( texts[i], true ) );
+        }
+    }
+
+    public void testExpressions()
+        throws Exception
+    {
+        CompiledTemplate template =
+            CompiledTemplate.compile( new StringReader( "${a} and @b.c@ but not \\${a}" ),
+                                      new DelimiterMatcher( delimiters, "\\" ), false );
+
+        assertEquals( 2, template.getExpressionCount() );
+    }
+
+    public void testMarkerCharacterNotCompiled()
+        throws Exception
+    {
+        assertNull( CompiledTemplate.compile( new StringReader( "${a} \uFFFF" ),
+                                              new DelimiterMatcher( delimiters, "\\" ), false ) );
+        assertNull( CompiledTemplate.compile( new StringReader( "\uFFFF ${a} @b.c@" ),
+                                              new DelimiterMatcher( delimiters, "\\" ), false ) );
+    }
+
+    public void testSharedAnswers()
+        throws Exception
+    {
+        CompiledTemplate template =
+            CompiledTemplate.compile( new StringReader( "${a} @a@" ), new DelimiterMatcher( delimiters, "\\" ),
+                                      false );
+        AnswerCache answers = new AnswerCache();
+
+        StringWriter writer = new StringWriter();
+        template.render( writer, newInterpolator(), new SimpleRecursionInterceptor(), answers );
+        assertEquals( "AA AA", writer.toString() );
+        assertEquals( 2, answers.size() );
+
+        MultiDelimiterStringSearchInterpolator empty = new MultiDelimiterStringSearchInterpolator();
+        empty.setDelimiterSpecs( delimiters );
+        writer = new StringWriter();
+        template.render( writer, empty, new SimpleRecursionInterceptor(), answers );
+        assertEquals( "AA AA", writer.toString() );
+
+        answers.clear();
+        writer = new StringWriter();
+        template.render( writer, empty, new SimpleRecursionInterceptor(), answers );
+        assertEquals( "${a} @a@", writer.toString() );
+    }
+}
@@ -93,6 +93,129 @@ public class DefaultMavenFileFilterTest
 
     }
 
+    public void testPreserveLastModified()
+        throws Exception
+    {
+        DefaultMavenFileFilter mavenFileFilter =
+            (DefaultMavenFileFilter) lookup( MavenFileFilter.class.getName(), "default" );
+
+        File from = new File( getBasedir(), "src/test/units-files/reflection-test.properties" );
+        from.setLastModified( System.currentTimeMillis() - 60000 );
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution();
+        mavenResourcesExecution.setEncoding( "UTF-8" );
+        mavenResourcesExecution.setPreserveLastModified( true );
+        mavenFileFilter.copyFile( from, to, false, mavenResourcesExecution );
+
+        assertEquals( from.lastModified(), to.lastModified() );
+        assertEquals( from.length(), to.length() );
+
+        // same modification time but another size: copied again
+        FileUtils.fileWrite( to.getPath(), "truncated" );
+        to.setLastModified( from.lastModified() );
+        mavenFileFilter.copyFile( from, to, false, mavenResourcesExecution );
+        assertEquals( from.length(), to.length() );
+
+        // without preserveLastModified, a destination as recent as its source is up to date whatever its size
+        FileUtils.fileWrite( to.getPath(), "truncated" );
+        to.setLastModified( from.lastModified() );
+        mavenResourcesExecution.setPreserveLastModified( false );
+        mavenFileFilter.copyFile( from, to, false, mavenResourcesExecution );
+        assertEquals( "truncated", FileUtils.fileRead( to ) );
+    }
+
+    public void testCopyWithoutFiltering()
+        throws Exception
+    {
+        DefaultMavenFileFilter mavenFileFilter =
+            (DefaultMavenFileFilter) lookup( MavenFileFilter.class.getName(), "default" );
+
+        File from = new File( getBasedir(), "target/DefaultMavenFileFilterTest/copy-source.properties" );
+        from.getParentFile().mkdirs();
+        FileUtils.fileWrite( from.getPath(), "version=${pom.version}\n" );
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution();
+        mavenResourcesExecution.setEncoding( "UTF-8" );
+        mavenResourcesExecution.setOverwrite( true );
+
+        // the directory of the destination is created
+        File missingDirectory = new File( getBasedir(), "target/DefaultMavenFileFilterTest/missing" );
+        FileUtils.deleteDirectory( missingDirectory );
+        File destination = new File( missingDirectory, "sub/copy.properties" );
+        mavenFileFilter.copyFile( from, destination, false, mavenResourcesExecution );
+        assertEquals( "version=${pom.version}\n", FileUtils.fileRead( destination ) );
+
+        // a file copied over itself is left as is
+        mavenFileFilter.copyFile( from, new File( from.getParentFile(), "../DefaultMavenFileFilterTest/"
+            + from.getName() ), false, mavenResourcesExecution );
+        assertEquals( "version=${pom.version}\n", FileUtils.fileRead( from ) );
+    }
+
+    public void testFilterFileOntoItself()
+        throws Exception
+    {
+        MavenFileFilter mavenFileFilter = (MavenFileFilter) lookup( MavenFileFilter.class.getName(), "default" );
+
+        File from = new File( getBasedir(), "target/DefaultMavenFileFilterTest/filter-itself.properties" );
+        from.getParentFile().mkdirs();
+        FileUtils.fileWrite( from.getPath(), "version=${pom.version}\n" );
+
+        // without an execution, through the methods taking the filter wrappers
+        List filterWrappers = mavenFileFilter.getDefaultFilterWrappers( null, null, false, null, null );
+        mavenFileFilter.copyFile( from, from, true, filterWrappers, "UTF-8" );
+        assertEquals( "version=${pom.version}\n", FileUtils.fileRead( from ) );
+    }
+
+    public void testLinkMode()
+        throws Exception
+    {
+        DefaultMavenFileFilter mavenFileFilter =
+            (DefaultMavenFileFilter) lookup( MavenFileFilter.class.getName(), "default" );
+
+        File from = new File( getBasedir(), "target/DefaultMavenFileFilterTest/link-source.properties" );
+        from.getParentFile().mkdirs();
+        FileUtils.fileWrite( from.getPath(), "version=${pom.version}\n" );
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution();
+        mavenResourcesExecution.setEncoding( "UTF-8" );
+        mavenResourcesExecution.setLinkMode( MavenResourcesExecution.LINK_MODE_LINK );
+        mavenResourcesExecution.setOverwrite( true );
+        mavenResourcesExecution.setFilterWrappers( new ArrayList() );
+        mavenFileFilter.copyFile( from, to, false, mavenResourcesExecution );
+        assertEquals( "version=${pom.version}\n", FileUtils.fileRead( to ) );
+        assertEquals( 1, mavenResourcesExecution.getStatistics().getLinkedFiles() );
+        assertTrue( FileLinker.isLinked( to ) );
+
+        // the directory of the destination is created
+        File missingDirectory = new File( getBasedir(), "target/DefaultMavenFileFilterTest/missing-link" );
+        FileUtils.deleteDirectory( missingDirectory );
+        File linked = new File( missingDirectory, "sub/link.properties" );
+        mavenFileFilter.copyFile( from, linked, false, mavenResourcesExecution );
+        assertEquals( 2, mavenResourcesExecution.getStatistics().getLinkedFiles() );
+        assertEquals( "version=${pom.version}\n", FileUtils.fileRead( linked ) );
+
+        // a later build in copy mode must not write through the link
+        File other = new File( getBasedir(), "target/DefaultMavenFileFilterTest/link-other.properties" );
+        FileUtils.fileWrite( other.getPath(), "other=true\n" );
+        MavenResourcesExecution copyExecution = new MavenResourcesExecution();
+        copyExecution.setEncoding( "UTF-8" );
+        copyExecution.setOverwrite( true );
+        copyExecution.setFilterWrappers( new ArrayList() );
+        mavenFileFilter.copyFile( other, linked, false, copyExecution );
+        assertEquals( "other=true\n", FileUtils.fileRead( linked ) );
+        assertEquals( "version=${pom.version}\n", FileUtils.fileRead( from ) );
+        assertFalse( FileLinker.isLinked( linked ) );
+
+        // writing the destination, linked or not, must not change the source
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty( "pom.version", "1.0" );
+        mavenResourcesExecution.setAdditionalProperties( additionalProperties );
+        mavenResourcesExecution.setFilterWrappers( mavenFileFilter.getDefaultFilterWrappers( mavenResourcesExecution ) );
+        mavenFileFilter.copyFile( from, to, true, mavenResourcesExecution );
+        assertEquals( "version=1.0\n", FileUtils.fileRead( to ) );
+        assertEquals( "version=${pom.version}\n", FileUtils.fileRead( from ) );
+    }
+
     public void testNullSafeDefaultFilterWrappers()
         throws Exception
     {
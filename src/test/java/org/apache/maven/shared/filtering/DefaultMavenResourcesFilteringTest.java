@@ -174,6 +174,283 @@ public class DefaultMavenResourcesFilteringTest
         assertFiltering( baseDir, initialImageFile, true, false );
     }
 
+    public void testPrescanFilteredFiles()
+        throws Exception
+    {
+        File baseDir = new File( "c:\\foo\\bar" );
+        StubMavenProject mavenProject = new StubMavenProject( baseDir );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        Properties projectProperties = new Properties();
+        projectProperties.put( "foo", "bar" );
+        projectProperties.put( "java.version", "zloug" );
+        mavenProject.setProperties( projectProperties );
+        MavenResourcesFiltering mavenResourcesFiltering = (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+        File initialImageFile = new File( unitFilesDir, "happy_duke.gif" );
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( unitFilesDir );
+        resource.setFiltering( true );
+
+        List filtersFile = new ArrayList();
+        filtersFile.add( getBasedir() + "/src/test/units-files/maven-resources-filtering/empty-maven-resources-filtering.txt" );
+
+        List nonFilteredFileExtensions = Collections.singletonList( "gif" );
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject,
+                                                                                       "UTF-8", filtersFile,
+                                                                                       nonFilteredFileExtensions,
+                                                                                       new StubMavenSession() );
+        mavenResourcesExecution.setEscapeString( "\\" );
+        mavenResourcesExecution.setPrescanFilteredFiles( true );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertFiltering( baseDir, initialImageFile, true, false );
+
+        // only maven-resources-filtering.txt contains delimiters
+        assertEquals( 1, mavenResourcesExecution.getStatistics().getFilteredFiles() );
+        assertEquals( 6, mavenResourcesExecution.getStatistics().getPassthroughFiles() );
+        assertEquals( 1, mavenResourcesExecution.getStatistics().getCopiedFiles() );
+    }
+
+    public void testParallelism()
+        throws Exception
+    {
+        File baseDir = new File( "c:\\foo\\bar" );
+        StubMavenProject mavenProject = new StubMavenProject( baseDir );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        Properties projectProperties = new Properties();
+        projectProperties.put( "foo", "bar" );
+        projectProperties.put( "java.version", "zloug" );
+        mavenProject.setProperties( projectProperties );
+        MavenResourcesFiltering mavenResourcesFiltering = (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+        File initialImageFile = new File( unitFilesDir, "happy_duke.gif" );
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( unitFilesDir );
+        resource.setFiltering( true );
+
+        List filtersFile = new ArrayList();
+        filtersFile.add( getBasedir() + "/src/test/units-files/maven-resources-filtering/empty-maven-resources-filtering.txt" );
+
+        List nonFilteredFileExtensions = Collections.singletonList( "gif" );
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject,
+                                                                                       "UTF-8", filtersFile,
+                                                                                       nonFilteredFileExtensions,
+                                                                                       new StubMavenSession() );
+        mavenResourcesExecution.setEscapeString( "\\" );
+        mavenResourcesExecution.setParallelism( 16 );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertFiltering( baseDir, initialImageFile, true, false );
+        assertEquals( 7, mavenResourcesExecution.getStatistics().getFilteredFiles() );
+        assertEquals( 1, mavenResourcesExecution.getStatistics().getCopiedFiles() );
+    }
+
+    public void testSkipUnchangedWrites()
+        throws Exception
+    {
+        File baseDir = new File( "c:\\foo\\bar" );
+        StubMavenProject mavenProject = new StubMavenProject( baseDir );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        Properties projectProperties = new Properties();
+        projectProperties.put( "foo", "bar" );
+        projectProperties.put( "java.version", "zloug" );
+        mavenProject.setProperties( projectProperties );
+        MavenResourcesFiltering mavenResourcesFiltering = (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( unitFilesDir );
+        resource.setFiltering( true );
+
+        List nonFilteredFileExtensions = Collections.singletonList( "gif" );
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject,
+                                                                                       "UTF-8", new ArrayList(),
+                                                                                       nonFilteredFileExtensions,
+                                                                                       new StubMavenSession() );
+        mavenResourcesExecution.setSkipUnchangedWrites( true );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertEquals( 0, mavenResourcesExecution.getStatistics().getWritesAvoided() );
+
+        File filtered = new File( outputDirectory, "maven-resources-filtering.txt" );
+        long lastModified = filtered.lastModified() - 60000;
+        filtered.setLastModified( lastModified );
+        String content = FileUtils.fileRead( filtered );
+
+        mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8",
+                                                               new ArrayList(), nonFilteredFileExtensions,
+                                                               new StubMavenSession() );
+        mavenResourcesExecution.setSkipUnchangedWrites( true );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+
+        assertEquals( 7, mavenResourcesExecution.getStatistics().getWritesAvoided() );
+        assertEquals( lastModified, filtered.lastModified() );
+        assertEquals( content, FileUtils.fileRead( filtered ) );
+
+        // a new value is written
+        projectProperties.put( "foo", "baz" );
+        mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8",
+                                                               new ArrayList(), nonFilteredFileExtensions,
+                                                               new StubMavenSession() );
+        mavenResourcesExecution.setSkipUnchangedWrites( true );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+
+        assertEquals( 6, mavenResourcesExecution.getStatistics().getWritesAvoided() );
+        assertTrue( FileUtils.fileRead( filtered ).indexOf( "baz" ) >= 0 );
+    }
+
+    public void testStateFile()
+        throws Exception
+    {
+        File baseDir = new File( "c:\\foo\\bar" );
+        StubMavenProject mavenProject = new StubMavenProject( baseDir );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        Properties projectProperties = new Properties();
+        projectProperties.put( "foo", "bar" );
+        projectProperties.put( "java.version", "zloug" );
+        mavenProject.setProperties( projectProperties );
+        MavenResourcesFiltering mavenResourcesFiltering = (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( unitFilesDir );
+        resource.setFiltering( true );
+
+        File stateFile = new File( getBasedir(), "target/DefaultMavenResourcesFilteringTest-state.properties" );
+        stateFile.delete();
+
+        List nonFilteredFileExtensions = Collections.singletonList( "gif" );
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject,
+                                                                                       "UTF-8", new ArrayList(),
+                                                                                       nonFilteredFileExtensions,
+                                                                                       new StubMavenSession() );
+        mavenResourcesExecution.setStateFile( stateFile );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertEquals( 7, mavenResourcesExecution.getStatistics().getFilteredFiles() );
+        assertTrue( stateFile.exists() );
+
+        // nothing changed: nothing copied
+        mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8",
+                                                               new ArrayList(), nonFilteredFileExtensions,
+                                                               new StubMavenSession() );
+        mavenResourcesExecution.setStateFile( stateFile );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertEquals( 0, mavenResourcesExecution.getStatistics().getFilteredFiles() );
+        assertEquals( 0, mavenResourcesExecution.getStatistics().getCopiedFiles() );
+
+        // a value changed: only the file using it is filtered again
+        projectProperties.put( "foo", "baz" );
+        mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8",
+                                                               new ArrayList(), nonFilteredFileExtensions,
+                                                               new StubMavenSession() );
+        mavenResourcesExecution.setStateFile( stateFile );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertEquals( 1, mavenResourcesExecution.getStatistics().getFilteredFiles() );
+        assertEquals( 7, mavenResourcesExecution.getStatistics().getUpToDateFiles() );
+        File filtered = new File( outputDirectory, "maven-resources-filtering.txt" );
+        assertTrue( FileUtils.fileRead( filtered ).indexOf( "baz" ) >= 0 );
+
+        // an output changed: only this one is filtered again
+        filtered.delete();
+        mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8",
+                                                               new ArrayList(), nonFilteredFileExtensions,
+                                                               new StubMavenSession() );
+        mavenResourcesExecution.setStateFile( stateFile );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertEquals( 1, mavenResourcesExecution.getStatistics().getFilteredFiles() );
+        assertTrue( filtered.exists() );
+
+        // overwrite: everything is copied again
+        mavenResourcesExecution = new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8",
+                                                               new ArrayList(), nonFilteredFileExtensions,
+                                                               new StubMavenSession() );
+        mavenResourcesExecution.setStateFile( stateFile );
+        mavenResourcesExecution.setOverwrite( true );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertEquals( 7, mavenResourcesExecution.getStatistics().getFilteredFiles() );
+        assertEquals( 0, mavenResourcesExecution.getStatistics().getUpToDateFiles() );
+    }
+
+    public void testRemoveStaleOutputs()
+        throws Exception
+    {
+        StubMavenProject mavenProject = new StubMavenProject( new File( getBasedir() ) );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        MavenResourcesFiltering mavenResourcesFiltering =
+            (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( getBasedir() + "/src/test/units-files/maven-resources-filtering" );
+        resource.setFiltering( true );
+
+        File stateFile = new File( getBasedir(), "target/DefaultMavenResourcesFilteringTest-state.properties" );
+        stateFile.delete();
+
+        MavenResourcesExecution mavenResourcesExecution =
+            newRemoveStaleOutputsExecution( resources, mavenProject, stateFile );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        File image = new File( outputDirectory, "happy_duke.gif" );
+        File included = new File( outputDirectory, "includefile.txt" );
+        assertTrue( image.exists() );
+        assertTrue( included.exists() );
+
+        // the output of a source not copied anymore is removed
+        resource.addExclude( "*.gif" );
+        mavenResourcesExecution = newRemoveStaleOutputsExecution( resources, mavenProject, stateFile );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertFalse( image.exists() );
+        assertTrue( included.exists() );
+        assertEquals( 1, mavenResourcesExecution.getStatistics().getRemovedOutputs() );
+
+        // unless it has been modified since it was written
+        FileUtils.fileWrite( included.getPath(), "modified" );
+        included.setLastModified( System.currentTimeMillis() - 60000 );
+        resource.addExclude( "includefile.txt" );
+        mavenResourcesExecution = newRemoveStaleOutputsExecution( resources, mavenProject, stateFile );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+        assertTrue( included.exists() );
+        assertEquals( 0, mavenResourcesExecution.getStatistics().getRemovedOutputs() );
+    }
+
+    private MavenResourcesExecution newRemoveStaleOutputsExecution( List resources,
+                                                                    StubMavenProject mavenProject, File stateFile )
+    {
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8", new ArrayList(),
+                                         Collections.singletonList( "gif" ), new StubMavenSession() );
+        mavenResourcesExecution.setStateFile( stateFile );
+        mavenResourcesExecution.setRemoveStaleOutputs( true );
+        return mavenResourcesExecution;
+    }
+
     public void testWithMavenResourcesExecutionWithAdditionnalProperties()
         throws Exception
     {
@@ -521,6 +798,39 @@ public class DefaultMavenResourcesFilteringTest
         assertFalse( excludeDir.exists() );
     }
 
+    public void testParallelExcludes()
+        throws Exception
+    {
+        StubMavenProject mavenProject = new StubMavenProject( new File( getBasedir() ) );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        MavenResourcesFiltering mavenResourcesFiltering =
+            (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( getBasedir() + "/src/test/units-files/maven-resources-filtering" );
+        resource.setFiltering( true );
+        resource.addExclude( "*.gif" );
+        resource.addExclude( "**/excludedir/**" );
+
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8", Collections.EMPTY_LIST,
+                                         Collections.EMPTY_LIST, new StubMavenSession() );
+        // the files are copied while the resource directory is walked
+        mavenResourcesExecution.setParallelism( 4 );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+
+        assertEquals( 5, outputDirectory.listFiles().length );
+        assertTrue( new File( outputDirectory, "includefile.txt" ).exists() );
+        assertTrue( new File( outputDirectory, "includedir/include.txt" ).exists() );
+        assertFalse( new File( outputDirectory, "happy_duke.gif" ).exists() );
+        assertFalse( new File( outputDirectory, "excludedir" ).exists() );
+    }
+
     public void testTargetAbsolutePath()
         throws Exception
     {
@@ -749,4 +1059,64 @@ public class DefaultMavenResourcesFilteringTest
 	    assertEquals( 1, files.length );
 	    assertEquals( "1.0.txt", files[0].getName() );
     }
+
+    public void testFilterDirectoryNames()
+        throws Exception
+    {
+        StubMavenProject mavenProject = new StubMavenProject( new File( getBasedir() ) );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        MavenResourcesFiltering mavenResourcesFiltering =
+            (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( getBasedir() + "/src/test/units-files/maven-dirname-filtering" );
+        resource.setFiltering( true );
+
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8", Collections.EMPTY_LIST,
+                                         Collections.EMPTY_LIST, new StubMavenSession() );
+        mavenResourcesExecution.setFilterDirectoryNames( true );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+
+        File filtered = new File( outputDirectory, "1.0/1.0.txt" );
+        assertTrue( filtered.exists() );
+        assertEquals( "version 1.0", FileUtils.fileRead( filtered ).trim() );
+        assertFalse( new File( outputDirectory, "${pom.version}" ).exists() );
+    }
+
+    public void testDirectoryCreations()
+        throws Exception
+    {
+        StubMavenProject mavenProject = new StubMavenProject( new File( getBasedir() ) );
+        mavenProject.setVersion( "1.0" );
+        mavenProject.setGroupId( "org.apache" );
+        mavenProject.setName( "test project" );
+
+        MavenResourcesFiltering mavenResourcesFiltering =
+            (MavenResourcesFiltering) lookup( MavenResourcesFiltering.class.getName() );
+
+        Resource resource = new Resource();
+        List resources = new ArrayList();
+        resources.add( resource );
+        resource.setDirectory( getBasedir() + "/src/test/units-files/maven-resources-filtering" );
+        resource.setFiltering( true );
+
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8", Collections.EMPTY_LIST,
+                                         Collections.EMPTY_LIST, new StubMavenSession() );
+        mavenResourcesExecution.setIncludeEmptyDirs( true );
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
+
+        assertTrue( new File( outputDirectory, "includedir/include.txt" ).exists() );
+        assertTrue( new File( outputDirectory, "excludedir/foo.txt" ).exists() );
+
+        // the output directory is known to exist, and each sub directory is created once by a single call
+        assertEquals( 0, mavenResourcesExecution.getStatistics().getDirectoryChecks() );
+        assertEquals( 2, mavenResourcesExecution.getStatistics().getDirectoryCreations() );
+    }
 }
@@ -0,0 +1,127 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedHashSet;
+
+import org.codehaus.plexus.PlexusTestCase;
+
+/**
+ * @since 1.2
+ */
+public class DelimiterMatcherTest
+    extends PlexusTestCase
+{
+    private DelimiterMatcher newMatcher( String escapeString )
+    {
+        LinkedHashSet delimiters = new LinkedHashSet();
+        delimiters.add( "${*}" );
+        delimiters.add( "@" );
+        delimiters.add( "$[*]" );
+        delimiters.add( "\u00a7{*}" );
+        return new DelimiterMatcher( delimiters, escapeString );
+    }
+
+    public void testFirstSpecificationWinsOnSharedLeadChar()
+    {
+        DelimiterMatcher matcher = newMatcher( null );
+
+        assertEquals( "${", matcher.getSpecification( '$' ).getBegin() );
+        assertEquals( "@", matcher.getSpecification( '@' ).getBegin() );
+        assertEquals( "\u00a7{", matcher.getSpecification( '\u00a7' ).getBegin() );
+        assertNull( matcher.getSpecification( 'a' ) );
+        assertNull( matcher.getSpecification( -1 ) );
+        assertEquals( 4, matcher.getSpecifications().size() );
+    }
+
+    public void testLeadChars()
+    {
+        DelimiterMatcher matcher = newMatcher( "\\" );
+
+        assertTrue( matcher.isLeadChar( '$' ) );
+        assertTrue( matcher.isLeadChar( '@' ) );
+        assertTrue( matcher.isLeadChar( '\\' ) );
+        assertTrue( matcher.isLeadChar( '\u00a7' ) );
+        assertFalse( matcher.isLeadChar( '{' ) );
+        assertFalse( matcher.isLeadChar( '\u00e9' ) );
+        assertNull( matcher.getSpecification( '\\' ) );
+        assertEquals( "\\", matcher.getEscapeString() );
+    }
+
+    public void testIndexOfLeadChar()
+    {
+        DelimiterMatcher matcher = newMatcher( null );
+        char[] chars = "foo bar ${baz}".toCharArray();
+
+        assertEquals( 8, matcher.indexOfLeadChar( chars, 0, chars.length ) );
+        assertEquals( 5, matcher.indexOfLeadChar( chars, 2, 5 ) );
+    }
+
+    public void testLookupCostDoesNotGrowWithDelimiters()
+    {
+        char[] text = new char[1024 * 1024];
+        for ( int i = 0; i < text.length; i++ )
+        {
+            text[i] = (char) ( 'a' + i % 26 );
+        }
+
+        LinkedHashSet oneDelimiter = new LinkedHashSet();
+        oneDelimiter.add( "${*}" );
+        LinkedHashSet sixteenDelimiters = new LinkedHashSet();
+        String leads = "$@#%&!^~|+=?:;\u00a7\u00b5";
+        for ( int i = 0; i < leads.length(); i++ )
+        {
+            sixteenDelimiters.add( leads.charAt( i ) + "{*}" );
+        }
+        assertEquals( 16, sixteenDelimiters.size() );
+
+        DelimiterMatcher one = new DelimiterMatcher( oneDelimiter, null );
+        DelimiterMatcher sixteen = new DelimiterMatcher( sixteenDelimiters, null );
+        // warm up both before timing
+        scan( one, text, 5 );
+        scan( sixteen, text, 5 );
+
+        long oneTime = bestScanTime( one, text );
+        long sixteenTime = bestScanTime( sixteen, text );
+        assertTrue( "1 delimiter: " + oneTime + "ms, 16 delimiters: " + sixteenTime + "ms",
+                    sixteenTime < 3 * oneTime + 20 );
+    }
+
+    private static long bestScanTime( DelimiterMatcher matcher, char[] text )
+    {
+        long best = Long.MAX_VALUE;
+        for ( int i = 0; i < 5; i++ )
+        {
+            long start = System.currentTimeMillis();
+            scan( matcher, text, 20 );
+            best = Math.min( best, System.currentTimeMillis() - start );
+        }
+        return best;
+    }
+
+    private static void scan( DelimiterMatcher matcher, char[] text, int times )
+    {
+        for ( int i = 0; i < times; i++ )
+        {
+            assertEquals( text.length, matcher.indexOfLeadChar( text, 0, text.length ) );
+            assertNull( matcher.getSpecification( text[i] ) );
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @since 1.2
+ */
+public class DirectoryListingCacheTest
+    extends PlexusTestCase
+{
+    private File directory = new File( getBasedir(), "target/DirectoryListingCacheTest" );
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        if ( directory.exists() )
+        {
+            FileUtils.forceDelete( directory );
+        }
+        new File( directory, "dir" ).mkdirs();
+        FileUtils.fileWrite( new File( directory, "file.txt" ).getPath(), "file" );
+        directory.setLastModified( System.currentTimeMillis() - 60000 );
+    }
+
+    public void testList()
+        throws Exception
+    {
+        DirectoryListingCache cache = new DirectoryListingCache( 10, 2000 );
+
+        DirectoryListingCache.Listing listing = cache.list( directory );
+        assertEquals( 2, listing.names.length );
+        for ( int i = 0; i < listing.names.length; i++ )
+        {
+            assertEquals( listing.names[i].equals( "dir" ) ? DirectoryListingCache.Listing.DIRECTORY
+                            : DirectoryListingCache.Listing.FILE, listing.kinds[i] );
+        }
+        assertSame( listing, cache.list( directory ) );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+
+        // an entry was added
+        FileUtils.fileWrite( new File( directory, "other.txt" ).getPath(), "other" );
+        directory.setLastModified( System.currentTimeMillis() - 30000 );
+        assertEquals( 3, cache.list( directory ).names.length );
+        assertEquals( 2, cache.getMisses() );
+
+        assertNull( cache.list( new File( directory, "file.txt" ) ) );
+        assertNull( cache.list( new File( directory, "missing" ) ) );
+    }
+
+    public void testRecentDirectoryNotCached()
+        throws Exception
+    {
+        DirectoryListingCache cache = new DirectoryListingCache( 10, 2000 );
+        directory.setLastModified( System.currentTimeMillis() );
+        cache.list( directory );
+        cache.list( directory );
+        assertEquals( 0, cache.getHits() );
+        assertEquals( 2, cache.getMisses() );
+    }
+}
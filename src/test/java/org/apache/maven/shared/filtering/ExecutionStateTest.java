@@ -0,0 +1,89 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collections;
+
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @since 1.2
+ */
+public class ExecutionStateTest
+    extends PlexusTestCase
+{
+    private File source = new File( getBasedir(), "target/ExecutionStateTest/source.properties" );
+
+    private File output = new File( getBasedir(), "target/ExecutionStateTest/output.properties" );
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        source.getParentFile().mkdirs();
+        FileUtils.fileWrite( source.getPath(), "key=value\n" );
+        FileUtils.fileWrite( output.getPath(), "key=value\n" );
+    }
+
+    public void testUpToDate()
+        throws Exception
+    {
+        source.setLastModified( System.currentTimeMillis() - 60000 );
+        ExecutionState state = new ExecutionState( "settings" );
+        state.record( source, output, output, false, Collections.EMPTY_LIST );
+
+        assertNotNull( state.getUpToDateEntry( source, output.getAbsolutePath(), null ) );
+
+        // same length, another modification time
+        FileUtils.fileWrite( source.getPath(), "key=other\n" );
+        source.setLastModified( System.currentTimeMillis() - 30000 );
+        assertNull( state.getUpToDateEntry( source, output.getAbsolutePath(), null ) );
+    }
+
+    public void testRecentSourceNotUpToDate()
+        throws Exception
+    {
+        // a change within the timestamp resolution of the recorded one could keep the same length and time
+        long lastModified = System.currentTimeMillis() / 1000 * 1000;
+        source.setLastModified( lastModified );
+        ExecutionState state = new ExecutionState( "settings" );
+        state.record( source, output, output, false, Collections.EMPTY_LIST );
+
+        FileUtils.fileWrite( source.getPath(), "key=VALUE\n" );
+        source.setLastModified( lastModified );
+        assertNull( state.getUpToDateEntry( source, output.getAbsolutePath(), null ) );
+    }
+
+    public void testSaveAndLoad()
+        throws Exception
+    {
+        source.setLastModified( System.currentTimeMillis() - 60000 );
+        ExecutionState state = new ExecutionState( "settings" );
+        state.record( source, output, output, false, Collections.EMPTY_LIST );
+        File file = new File( getBasedir(), "target/ExecutionStateTest/state.properties" );
+        state.save( file );
+
+        ExecutionState loaded = ExecutionState.load( file );
+        assertEquals( "settings", loaded.getSettings() );
+        assertNotNull( loaded.getUpToDateEntry( source, output.getAbsolutePath(), null ) );
+    }
+}
@@ -0,0 +1,66 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.codehaus.plexus.PlexusTestCase;
+
+/**
+ * @since 1.2
+ */
+public class FileExtensionMatcherTest
+    extends PlexusTestCase
+{
+    public void testExtensions()
+    {
+        FileExtensionMatcher matcher =
+            new FileExtensionMatcher( Arrays.asList( new String[] { "jpg", "PNG", ".tar.gz", null } ) );
+        assertTrue( matcher.matches( "image.jpg" ) );
+        assertTrue( matcher.matches( "IMAGE.JPG" ) );
+        assertTrue( matcher.matches( "image.png" ) );
+        assertTrue( matcher.matches( "archive.tar.gz" ) );
+        assertTrue( matcher.matches( ".jpg" ) );
+        assertFalse( matcher.matches( "archive.gz" ) );
+        assertFalse( matcher.matches( "archivetar.gz" ) );
+        assertFalse( matcher.matches( "image.jpg.txt" ) );
+        assertFalse( matcher.matches( "jpg" ) );
+        assertFalse( matcher.matches( "imagejpg" ) );
+    }
+
+    public void testPatterns()
+    {
+        FileExtensionMatcher matcher =
+            new FileExtensionMatcher( Arrays.asList( new String[] { "*.min.js", "data-?.bin" } ) );
+        assertTrue( matcher.matches( "app.min.js" ) );
+        assertTrue( matcher.matches( "APP.MIN.JS" ) );
+        assertTrue( matcher.matches( "data-1.bin" ) );
+        assertFalse( matcher.matches( "app.js" ) );
+        assertFalse( matcher.matches( "data-12.bin" ) );
+    }
+
+    public void testNoExtension()
+    {
+        assertTrue( new FileExtensionMatcher( Collections.singletonList( "" ) ).matches( "README" ) );
+        assertFalse( new FileExtensionMatcher( Collections.singletonList( "" ) ).matches( "README.txt" ) );
+        assertFalse( new FileExtensionMatcher( Collections.EMPTY_LIST ).matches( "README" ) );
+    }
+}
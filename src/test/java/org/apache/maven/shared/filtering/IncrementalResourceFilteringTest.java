@@ -155,6 +155,34 @@ public class IncrementalResourceFilteringTest
         assertTrue( ctx.getRefreshFiles().contains( new File( outputDirectory, "file02.txt" ) ) );
     }
 
+    public void testStaleOutputsOfIncrementalBuild()
+        throws Exception
+    {
+        File stateFile = new File( outputDirectory, "../IncrementalResourceFilteringTest.state" );
+        stateFile.delete();
+
+        // run full build first
+        filter( "time", stateFile );
+
+        // the outputs of the files which did not change are not stale
+        HashSet changedFiles = new HashSet();
+        changedFiles.add( "file01.txt" );
+        TestIncrementalBuildContext ctx = new TestIncrementalBuildContext( unitDirectory, changedFiles, new HashMap() );
+        ThreadBuildContext.setThreadBuildContext( ctx );
+
+        filter( "notime", stateFile );
+        assertTime( "notime", "file01.txt" );
+        assertTime( "time", "file02.txt" );
+    }
+
+    /**
+     * @return number of files filtered at the same time
+     */
+    protected int getParallelism()
+    {
+        return 1;
+    }
+
     private void assertTime( String time, String relpath )
         throws IOException
     {
@@ -175,6 +203,12 @@ public class IncrementalResourceFilteringTest
 
     private void filter( String time )
         throws Exception, MavenFilteringException
+    {
+        filter( time, null );
+    }
+
+    private void filter( String time, File stateFile )
+        throws Exception, MavenFilteringException
     {
         File baseDir = new File( getBasedir() );
         StubMavenProject mavenProject = new StubMavenProject( baseDir );
@@ -200,8 +234,14 @@ public class IncrementalResourceFilteringTest
         List filtersFile = new ArrayList();
         filtersFile.add( new File( unitDirectory, "filters.txt" ).getPath() );
 
-        mavenResourcesFiltering.filterResources( resources, outputDirectory, mavenProject, "UTF-8", filtersFile,
-                                                 new ArrayList(), new StubMavenSession() );
+        MavenResourcesExecution mavenResourcesExecution =
+            new MavenResourcesExecution( resources, outputDirectory, mavenProject, "UTF-8", filtersFile,
+                                         new ArrayList(), new StubMavenSession() );
+        mavenResourcesExecution.setParallelism( getParallelism() );
+        mavenResourcesExecution.setStateFile( stateFile );
+        mavenResourcesExecution.setRemoveStaleOutputs( true );
+
+        mavenResourcesFiltering.filterResources( mavenResourcesExecution );
     }
 
 }
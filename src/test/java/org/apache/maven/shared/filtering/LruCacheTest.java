@@ -0,0 +1,64 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.PlexusTestCase;
+
+/**
+ * @since 1.2
+ */
+public class LruCacheTest
+    extends PlexusTestCase
+{
+    public void testMaxEntries()
+    {
+        LruCache cache = new LruCache( 2 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        cache.get( "a" );
+        cache.put( "c", "C" );
+        assertEquals( "A", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( 2, cache.size() );
+    }
+
+    public void testMaxSize()
+    {
+        LruCache cache = new LruCache( 100, 10 );
+        cache.put( "a", "A", 4 );
+        cache.put( "b", "B", 4 );
+        cache.get( "a" );
+        cache.put( "c", "C", 4 );
+        // the least recently used entry is evicted to stay within the size
+        assertEquals( "A", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( 8, cache.getSize() );
+
+        // replacing an entry replaces its size
+        cache.put( "a", "A", 2 );
+        assertEquals( 6, cache.getSize() );
+
+        cache.remove( "c" );
+        assertEquals( 2, cache.getSize() );
+        cache.clear();
+        assertEquals( 0, cache.getSize() );
+        assertEquals( 0, cache.size() );
+    }
+}
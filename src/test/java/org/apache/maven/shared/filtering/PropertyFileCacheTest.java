@@ -0,0 +1,169 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Properties;
+
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @since 1.2
+ */
+public class PropertyFileCacheTest
+    extends PlexusTestCase
+{
+    private File file = new File( getBasedir(), "target/PropertyFileCacheTest/filter.properties" );
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getPath(), "key=value ${base}\n" );
+        file.setLastModified( System.currentTimeMillis() - 60000 );
+    }
+
+    public void testLoad()
+        throws Exception
+    {
+        PropertyFileCache cache = new PropertyFileCache( 10, 2000 );
+        Properties base = new Properties();
+        base.setProperty( "base", "one" );
+
+        assertEquals( "value one", cache.load( file, base ).getProperty( "key" ) );
+        assertEquals( "value one", cache.load( file, base ).getProperty( "key" ) );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+
+        // the values are resolved with other base properties
+        base.setProperty( "base", "two" );
+        assertEquals( "value two", cache.load( file, base ).getProperty( "key" ) );
+        assertEquals( 2, cache.getMisses() );
+
+        // the file changed
+        FileUtils.fileWrite( file.getPath(), "key=other ${base}\n" );
+        file.setLastModified( System.currentTimeMillis() - 30000 );
+        assertEquals( "other two", cache.load( file, base ).getProperty( "key" ) );
+        assertEquals( 3, cache.getMisses() );
+
+        // what is returned can be modified
+        cache.load( file, base ).setProperty( "key", "modified" );
+        assertEquals( "other two", cache.load( file, base ).getProperty( "key" ) );
+    }
+
+    public void testRecentFileNotCached()
+        throws Exception
+    {
+        PropertyFileCache cache = new PropertyFileCache( 10, 2000 );
+        file.setLastModified( System.currentTimeMillis() );
+        cache.load( file, null );
+        cache.load( file, null );
+        assertEquals( 0, cache.getHits() );
+        assertEquals( 2, cache.getMisses() );
+    }
+
+    public void testMissingFile()
+        throws Exception
+    {
+        PropertyFileCache cache = new PropertyFileCache( 10, 2000 );
+        try
+        {
+            cache.load( new File( file.getParentFile(), "missing.properties" ), null );
+            fail( "FileNotFoundException expected" );
+        }
+        catch ( FileNotFoundException e )
+        {
+            // expected
+        }
+    }
+
+    public void testReadAll()
+        throws Exception
+    {
+        File other = new File( file.getParentFile(), "other.properties" );
+        FileUtils.fileWrite( other.getPath(), "other=${key} and ${base}\n" );
+        other.setLastModified( System.currentTimeMillis() - 60000 );
+        File missing = new File( file.getParentFile(), "missing.properties" );
+
+        PropertyFileCache cache = new PropertyFileCache( 10, 2000 );
+        PropertyFileCache.Content[] contents = cache.readAll( new File[] { file, other, missing } );
+        assertEquals( 3, contents.length );
+
+        Properties base = new Properties();
+        base.setProperty( "base", "one" );
+        Properties properties = cache.load( file, base, contents[0] );
+        assertEquals( "value one", properties.getProperty( "key" ) );
+        base.putAll( properties );
+        assertEquals( "value one and one", cache.load( other, base, contents[1] ).getProperty( "other" ) );
+        try
+        {
+            cache.load( missing, base, contents[2] );
+            fail( "FileNotFoundException expected" );
+        }
+        catch ( FileNotFoundException e )
+        {
+            // expected
+        }
+    }
+
+    public void testReadAllChangedBeforeLoad()
+        throws Exception
+    {
+        PropertyFileCache cache = new PropertyFileCache( 10, 2000 );
+        PropertyFileCache.Content[] contents = cache.readAll( new File[] { file } );
+        FileUtils.fileWrite( file.getPath(), "key=changed\n" );
+        file.setLastModified( System.currentTimeMillis() - 30000 );
+
+        assertEquals( "changed", cache.load( file, null, contents[0] ).getProperty( "key" ) );
+    }
+
+    public void testReadAllSkipsCachedFiles()
+        throws Exception
+    {
+        File other = new File( file.getParentFile(), "other.properties" );
+        FileUtils.fileWrite( other.getPath(), "other=${key}\n" );
+        other.setLastModified( System.currentTimeMillis() - 60000 );
+        File[] files = new File[] { file, other };
+
+        PropertyFileCache cache = new PropertyFileCache( 10, 2000 );
+        Properties base = new Properties();
+        base.setProperty( "base", "one" );
+        cache.load( file, base );
+
+        // the file already loaded is not read again, even to be resolved with other base properties
+        PropertyFileCache.Content[] contents = cache.readAll( files );
+        PropertyFileCache.Content[] again = cache.readAll( files );
+        assertSame( contents[0], again[0] );
+        assertSame( contents[1], again[1] );
+        base.setProperty( "base", "two" );
+        assertEquals( "value two", cache.load( file, base, again[0] ).getProperty( "key" ) );
+
+        // the file changed is read again
+        FileUtils.fileWrite( file.getPath(), "key=other ${base}\n" );
+        file.setLastModified( System.currentTimeMillis() - 30000 );
+        again = cache.readAll( files );
+        assertNotSame( contents[0], again[0] );
+        assertSame( contents[1], again[1] );
+        assertEquals( "other two", cache.load( file, base, again[0] ).getProperty( "key" ) );
+    }
+}
@@ -111,4 +111,45 @@ public class PropertyUtilsTest
         assertEquals( "realVersion", interpolated.get( "bar" ) );
         assertEquals( "none filtered", interpolated.get( "none" ) );
     }
+
+    public void testCycles()
+        throws Exception
+    {
+        File cycleProp = new File( testDirectory, "cycle.properties" );
+
+        FileWriter writer = new FileWriter( cycleProp );
+        writer.write( "self=${self}\n" );
+        writer.write( "a=${b}\n" );
+        writer.write( "b=${a}\n" );
+        writer.write( "start=x ${c}\n" );
+        writer.write( "c=${d}\n" );
+        writer.write( "d=${c}\n" );
+        writer.close();
+
+        Properties prop = PropertyUtils.loadPropertyFile( cycleProp, false, false );
+        assertEquals( "${self}", prop.getProperty( "self" ) );
+        assertEquals( "${a}", prop.getProperty( "a" ) );
+        assertEquals( "${b}", prop.getProperty( "b" ) );
+        assertEquals( "x ${c}", prop.getProperty( "start" ) );
+        assertEquals( "${c}", prop.getProperty( "c" ) );
+    }
+
+    public void testLongChain()
+        throws Exception
+    {
+        File chainProp = new File( testDirectory, "chain.properties" );
+
+        FileWriter writer = new FileWriter( chainProp );
+        int length = 20000;
+        for ( int i = 0; i < length; i++ )
+        {
+            writer.write( "k" + i + "=${k" + ( i + 1 ) + "}\n" );
+        }
+        writer.write( "k" + length + "=v\n" );
+        writer.close();
+
+        Properties prop = PropertyUtils.loadPropertyFile( chainProp, false, false );
+        assertEquals( "v", prop.getProperty( "k0" ) );
+        assertEquals( "v", prop.getProperty( "k" + ( length / 2 ) ) );
+    }
 }
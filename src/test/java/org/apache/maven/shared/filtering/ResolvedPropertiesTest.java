@@ -0,0 +1,71 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedHashSet;
+import java.util.Properties;
+
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
+import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
+import org.codehaus.plexus.interpolation.multi.MultiDelimiterStringSearchInterpolator;
+
+/**
+ * @since 1.2
+ */
+public class ResolvedPropertiesTest
+    extends PlexusTestCase
+{
+    public void testResolve()
+    {
+        LinkedHashSet delimiters = new LinkedHashSet();
+        delimiters.add( "${*}" );
+        delimiters.add( "@" );
+
+        Properties properties = new Properties();
+        properties.setProperty( "a", "AA" );
+        properties.setProperty( "r", "${a}-x" );
+        properties.setProperty( "c1", "${c2}" );
+        properties.setProperty( "c2", "${c1}" );
+        properties.setProperty( "u", "${unknown}" );
+
+        MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
+        interpolator.setDelimiterSpecs( delimiters );
+        interpolator.addValueSource( new PropertiesBasedValueSource( properties ) );
+
+        ResolvedProperties resolved =
+            ResolvedProperties.resolve( properties, interpolator, new SimpleRecursionInterceptor(),
+                                        new DelimiterMatcher( delimiters, null ).getSpecifications() );
+
+        assertEquals( "AA", resolved.get( "${a}" ) );
+        assertEquals( "AA", resolved.get( "@a@" ) );
+        assertEquals( "AA-x", resolved.get( "${r}" ) );
+        assertEquals( "${unknown}", resolved.get( "${u}" ) );
+        assertNull( resolved.get( "${c1}" ) );
+        assertNull( resolved.get( "${unknown}" ) );
+        assertNull( resolved.get( "a" ) );
+    }
+
+    public void testEmpty()
+    {
+        assertNull( ResolvedProperties.EMPTY.get( "${a}" ) );
+        assertEquals( 0, ResolvedProperties.EMPTY.size() );
+    }
+}
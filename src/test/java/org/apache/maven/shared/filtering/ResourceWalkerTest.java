@@ -0,0 +1,161 @@
+package org.apache.maven.shared.filtering;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * @since 1.2
+ */
+public class ResourceWalkerTest
+    extends PlexusTestCase
+{
+    File directory = new File( getBasedir(), "target/ResourceWalkerTest" );
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        if ( directory.exists() )
+        {
+            FileUtils.forceDelete( directory );
+        }
+        createFile( "a.txt" );
+        createFile( "b.gif" );
+        createFile( "includedir/include.txt" );
+        createFile( "excludedir/foo.txt" );
+        createFile( "x/y/z.properties" );
+        createFile( "x/.svn/entries" );
+    }
+
+    private void createFile( String name )
+        throws Exception
+    {
+        File file = new File( directory, name );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getPath(), name );
+    }
+
+    private List walk( String[] includes, String[] excludes, boolean defaultExcludes )
+        throws Exception
+    {
+        final List names = new ArrayList();
+        new ResourceWalker( directory, includes, excludes, defaultExcludes ).walk( new ResourceWalker.Visitor()
+        {
+            public void visitDirectory( String name )
+            {
+                names.add( name.replace( File.separatorChar, '/' ) + "/" );
+            }
+
+            public void visitFile( String name )
+            {
+                names.add( name.replace( File.separatorChar, '/' ) );
+            }
+        } );
+        Collections.sort( names );
+        return names;
+    }
+
+    public void testDefaultExcludes()
+        throws Exception
+    {
+        assertEquals( Arrays.asList( new String[] { "/", "a.txt", "b.gif", "excludedir/", "excludedir/foo.txt",
+            "includedir/", "includedir/include.txt", "x/", "x/y/", "x/y/z.properties" } ), walk( null, null, true ) );
+        assertTrue( walk( null, null, false ).contains( "x/.svn/entries" ) );
+    }
+
+    public void testExcludes()
+        throws Exception
+    {
+        assertEquals( Arrays.asList( new String[] { "/", "a.txt", "includedir/", "includedir/include.txt", "x/",
+            "x/y/", "x/y/z.properties" } ), walk( null, new String[] { "*.gif", "**/excludedir/**" }, true ) );
+    }
+
+    public void testExcludedDirectoryIsWalked()
+        throws Exception
+    {
+        // as DirectoryScanner, an exclude matching a directory doesn't exclude its content
+        assertEquals( Arrays.asList( new String[] { "/", "a.txt", "b.gif", "excludedir/foo.txt", "includedir/",
+            "includedir/include.txt", "x/", "x/y/", "x/y/z.properties" } ),
+                      walk( null, new String[] { "excludedir" }, true ) );
+        assertEquals( Arrays.asList( new String[] { "/", "excludedir/foo.txt", "includedir/include.txt", "x/y/",
+            "x/y/z.properties" } ), walk( null, new String[] { "*" }, true ) );
+    }
+
+    public void testSameAsDirectoryScanner()
+        throws Exception
+    {
+        String[][] excludes = { null, { "excludedir" }, { "**/excludedir" }, { "*" }, { "**/y" }, { "x/*" },
+            { "**/excludedir/**" }, { "x/" }, { "**" }, { "*/*" }, { "**/*.txt" } };
+        String[][] includes = { null, { "**/*.txt" }, { "x/**" }, { "*" } };
+        for ( int i = 0; i < includes.length; i++ )
+        {
+            for ( int j = 0; j < excludes.length; j++ )
+            {
+                DirectoryScanner scanner = new DirectoryScanner();
+                scanner.setBasedir( directory );
+                scanner.setIncludes( includes[i] );
+                scanner.setExcludes( excludes[j] );
+                scanner.addDefaultExcludes();
+                scanner.scan();
+                List expected = new ArrayList();
+                String[] directories = scanner.getIncludedDirectories();
+                for ( int k = 0; k < directories.length; k++ )
+                {
+                    expected.add( directories[k].replace( File.separatorChar, '/' ) + "/" );
+                }
+                String[] files = scanner.getIncludedFiles();
+                for ( int k = 0; k < files.length; k++ )
+                {
+                    expected.add( files[k].replace( File.separatorChar, '/' ) );
+                }
+                Collections.sort( expected );
+
+                String patterns = ( includes[i] == null ? null : Arrays.asList( includes[i] ) ) + " "
+                    + ( excludes[j] == null ? null : Arrays.asList( excludes[j] ) );
+                assertEquals( patterns, expected, walk( includes[i], excludes[j], true ) );
+            }
+        }
+    }
+
+    public void testIncludes()
+        throws Exception
+    {
+        assertEquals( Arrays.asList( new String[] { "includedir/", "includedir/include.txt" } ),
+                      walk( new String[] { "includ*", "**/includ*" }, null, true ) );
+        assertEquals( Collections.singletonList( "x/y/z.properties" ),
+                      walk( new String[] { "**/*.properties" }, null, true ) );
+        assertEquals( Arrays.asList( new String[] { "a.txt", "x/y/z.properties" } ),
+                      walk( new String[] { "?.txt", "x/*/z.*" }, null, true ) );
+        // everything below a directory
+        assertEquals( Arrays.asList( new String[] { "x/", "x/y/", "x/y/z.properties" } ),
+                      walk( new String[] { "x\\" }, null, true ) );
+        // an absolute pattern doesn't match relative paths
+        assertEquals( Collections.EMPTY_LIST, walk( new String[] { "/x/**" }, null, true ) );
+    }
+}